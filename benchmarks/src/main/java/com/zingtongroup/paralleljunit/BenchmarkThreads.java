@@ -0,0 +1,54 @@
+package com.zingtongroup.paralleljunit;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Thread counts the harness overhead is measured at, and muting of the runner output during the measurement.
+ */
+class BenchmarkThreads {
+
+    static final String[] THREAD_COUNTS = {"1", "N", "4N"};
+
+    private static PrintStream originalOut;
+
+    private BenchmarkThreads(){}
+
+    /**
+     * @param threadCount "1", or N or 4N for one or four threads per available processor.
+     */
+    static int resolve(String threadCount){
+        int processors = Runtime.getRuntime().availableProcessors();
+        switch (threadCount){
+            case "N":
+                return processors;
+            case "4N":
+                return 4 * processors;
+            default:
+                return Integer.parseInt(threadCount);
+        }
+    }
+
+    /**
+     * The runners print a report per test method, which would otherwise be measured as harness cost.
+     */
+    static synchronized void muteRunnerOutput(){
+        if(originalOut != null) return;
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    static synchronized void restoreRunnerOutput(){
+        if(originalOut == null) return;
+        System.setOut(originalOut);
+        originalOut = null;
+    }
+}
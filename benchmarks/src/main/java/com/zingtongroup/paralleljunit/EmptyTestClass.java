@@ -0,0 +1,36 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.lang.reflect.Method;
+
+/**
+ * Test class with empty test, Before and After methods, so that the benchmarks measure only the cost of the harness.
+ */
+public class EmptyTestClass {
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @ParallelTest(threadCount = 1)
+    public void emptyParallelTest() {
+    }
+
+    @LoadTest(maxThreadCount = 1, totalDurationInMilliseconds = Integer.MAX_VALUE)
+    public void emptyLoadTest() {
+    }
+
+    static Method testMethod(String name){
+        try {
+            return EmptyTestClass.class.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.zingtongroup.paralleljunit;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the harness benchmarks at 1, N and 4N threads, N being the number of processors, and publishes the
+ * overhead per test method execution in nanoseconds to harness-overhead.tsv, one line per benchmark and thread
+ * count, to be tracked across releases. The raw JMH results are written next to it as JSON.
+ * <p>
+ * Usage: java -jar target/benchmarks.jar [result directory, default target]
+ */
+public class HarnessOverhead {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path resultDirectory = Paths.get(args.length > 0 ? args[0] : "target");
+        Files.createDirectories(resultDirectory);
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + PerformanceBaseline.environmentFingerprint());
+        lines.add("benchmark\tthreads\tthreadCount\toverheadNanosPerIteration");
+        for(String threads : BenchmarkThreads.THREAD_COUNTS){
+            int threadCount = BenchmarkThreads.resolve(threads);
+            Collection<RunResult> results = new Runner(new OptionsBuilder()
+                    .include(TestMethodExecutorBenchmark.class.getSimpleName())
+                    .include(LoadTestIterationBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultDirectory.resolve("jmh-iterations-" + threads + ".json").toString())
+                    .build()).run();
+            double directInvocation = score(results, "directInvocation", null);
+            lines.add(line("TestMethodExecutor.run", threads, threadCount, score(results, "executorRun", null) - directInvocation));
+            lines.add(line("LoadTest iteration", threads, threadCount, score(results, "runIteration", null) - directInvocation));
+        }
+        Collection<RunResult> dispatchResults = new Runner(new OptionsBuilder()
+                .include(ParallelTestDispatchBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultDirectory.resolve("jmh-dispatch.json").toString())
+                .build()).run();
+        for(String threads : BenchmarkThreads.THREAD_COUNTS){
+            int threadCount = BenchmarkThreads.resolve(threads);
+            lines.add(line("ParallelTest dispatch", threads, threadCount, score(dispatchResults, "dispatch", threads) * 1000 / threadCount));
+        }
+        Path overheadFile = resultDirectory.resolve("harness-overhead.tsv");
+        Files.write(overheadFile, lines, StandardCharsets.UTF_8);
+        System.out.println("Harness overhead per test method execution, written to " + overheadFile.toAbsolutePath() + ":");
+        for(String line : lines) System.out.println(line);
+    }
+
+    /**
+     * @return Mean score of the benchmark method, with the given threads parameter if not null.
+     */
+    private static double score(Collection<RunResult> results, String benchmarkMethod, String threads){
+        for(RunResult result : results){
+            if(!result.getParams().getBenchmark().endsWith("." + benchmarkMethod)) continue;
+            if(threads != null && !threads.equals(result.getParams().getParam("threads"))) continue;
+            return result.getPrimaryResult().getScore();
+        }
+        return Double.NaN;
+    }
+
+    private static String line(String benchmark, String threads, int threadCount, double overheadNanos){
+        return String.format(Locale.ROOT, "%s\t%s\t%d\t%.1f", benchmark, threads, threadCount, overheadNanos);
+    }
+}
@@ -0,0 +1,68 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.runner.notification.RunNotifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of one load test iteration of an empty test method on a LoadTest worker: a new test class instance,
+ * Before and After methods, invocation, and the recording into the shared latency, phase and resource usage
+ * recorders and counters, which the worker threads contend on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadTestIterationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Harness {
+        LoadTestMethodRunner runner;
+        final AtomicInteger nextWorkerIndex = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BenchmarkThreads.muteRunnerOutput();
+            runner = new LoadTestMethodRunner(new RunNotifier(), EmptyTestClass.class, EmptyTestClass.testMethod("emptyLoadTest"));
+            runner.threadPool.shutdown();
+            runner.testInstanceProvider.prepare();
+            long startTime = System.nanoTime();
+            runner.stopTime = startTime + TimeUnit.MILLISECONDS.toNanos(runner.loadTestInstance.totalDurationInMilliseconds());
+            runner.phases = LoadTestPhases.create(runner.loadTestInstance, startTime);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown(){
+            BenchmarkThreads.restoreRunnerOutput();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        LoadTestMethodRunner.LoadTestWorker worker;
+
+        @Setup(Level.Trial)
+        public void setUp(Harness harness){
+            worker = harness.runner.new LoadTestWorker(harness.nextWorkerIndex.getAndIncrement(), 0, Long.MAX_VALUE, null);
+        }
+    }
+
+    @Benchmark
+    public boolean runIteration(Worker worker){
+        return worker.worker.runIteration();
+    }
+}
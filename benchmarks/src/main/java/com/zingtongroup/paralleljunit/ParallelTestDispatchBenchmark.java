@@ -0,0 +1,69 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.runner.notification.RunNotifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of dispatching the threads of a ParallelTest of an empty test method: creating the test method executors,
+ * handing them to the thread pool and waiting for the threads. The runner, its test class instances and thread pool
+ * are set up before each invocation, so construction, warm-up and the checks are not timed. Divided by the thread
+ * count it is the dispatch overhead per test method execution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class ParallelTestDispatchBenchmark {
+
+    @Param({"1", "N", "4N"})
+    public String threads;
+
+    private int threadCount;
+    private final RunNotifier notifier = new RunNotifier();
+    private ParallelTestRunner runner;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        threadCount = BenchmarkThreads.resolve(threads);
+        BenchmarkThreads.muteRunnerOutput();
+    }
+
+    @Setup(Level.Invocation)
+    public void createRunner() throws Exception {
+        runner = new ParallelTestRunner(notifier, EmptyTestClass.class, EmptyTestClass.testMethod("emptyParallelTest"));
+        runner.testThreadPool.shutdown();
+        runner.threadCount = threadCount;
+        runner.testInstanceProvider = TestInstanceProvider.create(TestInstanceScope.PER_THREAD, threadCount, 0, runner);
+        runner.testThreadPool = ExecutionEngineType.PLATFORM_THREADS.resolve().createExecutorService(threadCount);
+        runner.instantiateTestClass();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        BenchmarkThreads.restoreRunnerOutput();
+    }
+
+    @Benchmark
+    public ParallelTestRunner dispatch() {
+        runner.executeTest();
+        return runner;
+    }
+}
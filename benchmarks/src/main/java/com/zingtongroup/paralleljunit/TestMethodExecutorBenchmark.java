@@ -0,0 +1,79 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.runner.notification.RunNotifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of one TestMethodExecutor.run of an empty test method, as used by ParallelTest and ParallelizationTest threads:
+ * instance lookup, Before and After methods, method handle invocation, timing and flight recorder event calls.
+ * The directInvocation benchmark calls the same empty methods directly, as the zero line to subtract.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestMethodExecutorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Harness {
+        ParallelTestRunner runner;
+        TestInstanceProvider testInstanceProvider;
+        final AtomicInteger nextThreadIndex = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) throws Exception {
+            BenchmarkThreads.muteRunnerOutput();
+            runner = new ParallelTestRunner(new RunNotifier(), EmptyTestClass.class, EmptyTestClass.testMethod("emptyParallelTest"));
+            runner.testThreadPool.shutdown();
+            testInstanceProvider = TestInstanceProvider.create(TestInstanceScope.PER_THREAD, params.getThreads(), 0, runner);
+            testInstanceProvider.prepare();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown(){
+            BenchmarkThreads.restoreRunnerOutput();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+        TestMethodExecutor executor;
+        final EmptyTestClass testClassInstance = new EmptyTestClass();
+
+        @Setup(Level.Trial)
+        public void setUp(Harness harness){
+            executor = new TestMethodExecutor(harness.testInstanceProvider, harness.nextThreadIndex.getAndIncrement(),
+                    harness.runner.method, harness.runner.testMethodHandle, null, null);
+        }
+    }
+
+    @Benchmark
+    public Object executorRun(Worker worker){
+        worker.executor.run();
+        return worker.executor.innerException;
+    }
+
+    @Benchmark
+    public Object directInvocation(Worker worker){
+        worker.testClassInstance.setUp();
+        worker.testClassInstance.emptyParallelTest();
+        worker.testClassInstance.tearDown();
+        return worker.testClassInstance;
+    }
+}
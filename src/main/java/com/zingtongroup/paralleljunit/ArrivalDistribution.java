@@ -0,0 +1,16 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Distribution of the intended iteration start times when a load test is run
+ * with a target arrival rate (open workload model).
+ */
+public enum ArrivalDistribution {
+    /**
+     * Iterations are issued at evenly spaced intervals.
+     */
+    FIXED,
+    /**
+     * Iterations are issued with exponentially distributed intervals, like independent users arriving.
+     */
+    POISSON
+}
@@ -0,0 +1,89 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues intended iteration start times at a constant target rate for the open workload model.
+ * Worker threads claim the next intended start time when they are free, so when all threads are
+ * busy the claimed start time lies in the past and the queueing delay becomes part of the measured
+ * latency (coordinated omission correction). Iterations starting late are counted to tell when
+ * the thread count could not keep up with the target rate.
+ */
+class ArrivalScheduler {
+
+    private final double targetIterationsPerSecond;
+    private final ArrivalDistribution distribution;
+    private final double meanIntervalNanos;
+    private final long startTime;
+    private final long endTime;
+    private final long lateStartToleranceNanos;
+    private final AtomicLong issuedIterations;
+    private final AtomicLong nextPoissonStartTime;
+    private final LongAdder lateIterations;
+    private final LongAccumulator maxLagNanos;
+
+    ArrivalScheduler(double targetIterationsPerSecond, ArrivalDistribution distribution, long startTime, long durationNanos){
+        this.targetIterationsPerSecond = targetIterationsPerSecond;
+        this.distribution = distribution;
+        this.meanIntervalNanos = 1_000_000_000d / targetIterationsPerSecond;
+        this.startTime = startTime;
+        this.endTime = startTime + durationNanos;
+        this.lateStartToleranceNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) meanIntervalNanos);
+        this.issuedIterations = new AtomicLong();
+        this.nextPoissonStartTime = new AtomicLong(startTime);
+        this.lateIterations = new LongAdder();
+        this.maxLagNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    long claimNextIntendedStartTime(){
+        if(distribution == ArrivalDistribution.FIXED)
+            return startTime + (long) (issuedIterations.getAndIncrement() * meanIntervalNanos);
+        while(true){
+            long intendedStartTime = nextPoissonStartTime.get();
+            double interval = -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos;
+            if(nextPoissonStartTime.compareAndSet(intendedStartTime, intendedStartTime + (long) interval)){
+                issuedIterations.incrementAndGet();
+                return intendedStartTime;
+            }
+        }
+    }
+
+    boolean isWithinTestDuration(long intendedStartTime){
+        return intendedStartTime - endTime < 0;
+    }
+
+    /**
+     * Parks the calling thread until the intended start time.
+     * @return False if the thread was interrupted while waiting.
+     */
+    boolean awaitIntendedStartTime(long intendedStartTime){
+        long lag;
+        while((lag = System.nanoTime() - intendedStartTime) < 0){
+            LockSupport.parkNanos(-lag);
+            if(Thread.currentThread().isInterrupted()) return false;
+        }
+        if(lag > lateStartToleranceNanos) lateIterations.increment();
+        maxLagNanos.accumulate(lag);
+        return true;
+    }
+
+    long getLateIterationCount(){
+        return lateIterations.sum();
+    }
+
+    @Override
+    public String toString(){
+        String report = String.format(Locale.ROOT, "Target rate %.1f iterations/s with %s arrivals. ", targetIterationsPerSecond, distribution) +
+                getLateIterationCount() + " iterations started more than " + IterationStatistics.millis(lateStartToleranceNanos) +
+                " after their intended start time (max lag " + IterationStatistics.millis(maxLagNanos.get()) + ").";
+        if(getLateIterationCount() > 0)
+            report += " The thread count was too low to sustain the target rate; latencies include the queueing delay.";
+        return report;
+    }
+}
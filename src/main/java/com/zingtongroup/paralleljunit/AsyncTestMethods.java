@@ -0,0 +1,50 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Support for asynchronous test methods, returning a CompletionStage, e.g. a CompletableFuture, or a Future.
+ * An asynchronous test method execution lasts until the returned result completes, and fails if it completes exceptionally.
+ */
+class AsyncTestMethods {
+
+    private AsyncTestMethods(){}
+
+    /**
+     * Waits for the result of an asynchronous test method. Other results are returned as is.
+     * @throws InvocationTargetException With the failure of the result as cause, like a failure thrown by the test method itself.
+     */
+    static Object await(Object result) throws InvocationTargetException {
+        if(!(result instanceof CompletionStage) && !(result instanceof Future)) return result;
+        try {
+            if(result instanceof CompletionStage){
+                CompletableFuture<Object> completion = new CompletableFuture<>();
+                ((CompletionStage<?>) result).whenComplete((value, failure) -> {
+                    if(failure != null) completion.completeExceptionally(failure);
+                    else completion.complete(value);
+                });
+                return completion.get();
+            }
+            return ((Future<?>) result).get();
+        } catch (ExecutionException e) {
+            throw new InvocationTargetException(unwrap(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * The failure of the test code, without the CompletionException and ExecutionException wrappers of the futures.
+     */
+    static Throwable unwrap(Throwable failure){
+        while((failure instanceof CompletionException || failure instanceof ExecutionException) && failure.getCause() != null)
+            failure = failure.getCause();
+        return failure;
+    }
+}
@@ -0,0 +1,30 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets the ParallelJUnit runner execute the test methods of the annotated test class concurrently,
+ * within a budget of threads for the whole class. Each ParallelTest uses its thread count of the budget,
+ * other test methods one thread.
+ * <p>
+ * Test methods with the isolationGroup EXCLUSIVE, by default all ParallelizationTest and LoadTest methods and
+ * ParallelTest methods with a timeout, GC pause limit or regression check, run alone so that their timings are not disturbed. Test methods sharing any other isolation group
+ * run one at a time but concurrently with methods of other groups.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ConcurrentTestMethods {
+
+    /**
+     * Isolation group of test methods that must not run concurrently with any other test method.
+     */
+    String EXCLUSIVE = "exclusive";
+
+    /**
+     * Max number of test method threads running at the same time, or 0 for the number of processors.
+     */
+    int threadBudget() default 0;
+}
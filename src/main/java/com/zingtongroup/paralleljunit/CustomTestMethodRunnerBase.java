@@ -1,16 +1,22 @@
 package com.zingtongroup.paralleljunit;
 
-import org.junit.After;
-import org.junit.Before;
 import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.TestTimedOutException;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Internal custom test method runner for parallel exeution of test methods.
@@ -23,76 +29,291 @@ abstract class CustomTestMethodRunnerBase {
     RunNotifier notifier;
     Class<?> testClass;
     Method method;
-    List<Exception> innerExceptions;
+    ErrorAggregator errors;
     Class expectedException;
+    final TestClassMetadata testClassMetadata;
+    MethodHandle testMethodHandle;
+    ParameterFeeder feeder;
+    private FlightRecorderSupport.FailureRecording flightRecording;
+    private RunListener flightRecordingFailureListener;
+    private volatile boolean failedDuringFlightRecording;
 
     CustomTestMethodRunnerBase(RunNotifier notifier, Class<?> testClass, Method method){
         this.notifier = notifier;
         this.testClass = testClass;
         this.method = method;
-        innerExceptions = new ArrayList<>();
+        testClassMetadata = TestClassMetadata.forClass(testClass);
+        testMethodHandle = method.getParameterCount() == 0 ? testClassMetadata.testMethodHandle(method) : null;
         expectedException = null;
         for(Annotation a : method.getAnnotations()){
-            Object annotationObject = method.getAnnotation(a.getClass());
-            if(annotationObject == null)continue;
-            for(Method m1: annotationObject.getClass().getMethods()){
-                System.out.println(m1.getName());
-            }
             try {
-                Method m = annotationObject.getClass().getMethod("expected", annotationObject.getClass());
-                expectedException = (Class)m.invoke(annotationObject, new Object[]{null});
+                Method m = a.annotationType().getMethod("expected");
+                expectedException = (Class)m.invoke(a);
+            } catch (NoSuchMethodException e) {
+                //Annotation without expected exception. Ignored.
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
+        errors = new ErrorAggregator(expectedException);
     }
 
     abstract void run();
 
-    static void runBeforeMethods(Object testClassInstance) throws InvocationTargetException, IllegalAccessException {
-        for(Method method :testClassInstance.getClass().getMethods()){
-            if(method.isAnnotationPresent(Before.class)){
-                method.invoke(testClassInstance);
-            }
+    /**
+     * Opens the feeder file, if given, and binds it to the test method. The test method handle then takes the record as second argument.
+     */
+    void useFeeder(String feederFile, FeederMode feederMode, int feederRecordSize, boolean feederSkipHeader) throws Exception {
+        if(feederFile.isEmpty()){
+            if(method.getParameterCount() > 0) throw new Exception("Test method " + method.getName() + " has a parameter but no feeder file is given.");
+            return;
         }
+        feeder = new ParameterFeeder(Paths.get(feederFile), feederMode, feederRecordSize, feederSkipHeader);
+        testMethodHandle = feeder.bind(method);
+        System.out.println("Feeding test method " + method.getName() + " with " + feeder.getRecordCount() + " records of " + feederFile + " in " + feederMode + " mode.");
     }
 
-    static void runAfterMethods(Object testClassInstance) throws InvocationTargetException, IllegalAccessException {
-        for(Method method :testClassInstance.getClass().getMethods()){
-            if(method.isAnnotationPresent(After.class)){
-                method.invoke(testClassInstance);
-            }
-        }
+    static void runBeforeMethods(Object testClassInstance) throws InvocationTargetException {
+        TestClassMetadata.forClass(testClassInstance.getClass()).runBeforeMethods(testClassInstance);
+    }
+
+    static void runAfterMethods(Object testClassInstance) throws InvocationTargetException {
+        TestClassMetadata.forClass(testClassInstance.getClass()).runAfterMethods(testClassInstance);
+    }
+
+    /**
+     * Invokes the test method, waiting for the result of a test method returning a CompletionStage or Future.
+     */
+    Object invokeTestMethod(Object testClassInstance) throws InvocationTargetException, FeederExhaustedException {
+        return AsyncTestMethods.await(TestClassMetadata.invokeTestMethod(testMethodHandle, testClassInstance, nextTestMethodArgument()));
+    }
+
+    /**
+     * Decodes the next feeder record, to be passed to the test method. Called before the execution is timed.
+     * @return The record, or null without a feeder.
+     */
+    Object nextTestMethodArgument() throws FeederExhaustedException {
+        return feeder == null ? null : feeder.next();
     }
 
     Object createTestClassInstance(){
         try{
-            return testClass.getDeclaredConstructor().newInstance();
+            return testClassMetadata.newInstance();
         } catch (Exception e){
             if(!e.getClass().equals(expectedException))
-                innerExceptions.add(new TestClassInstantiationException(e));
+                errors.add(new TestClassInstantiationException(e));
         }
         return null;
     }
 
-    void testDurationCheck(long maxDuration, long actualDuration){
-        if(expectedException != null)
-            System.out.println(expectedException.getClass().getName());
+    /**
+     * Runners executing the test method once per thread treat PER_ITERATION as PER_THREAD,
+     * so that all instances are created before the measured execution.
+     */
+    static TestInstanceScope perThreadScope(TestInstanceScope testInstanceScope){
+        return testInstanceScope == TestInstanceScope.PER_ITERATION ? TestInstanceScope.PER_THREAD : testInstanceScope;
+    }
+
+    /**
+     * The start gate is only used if all threads can hold a test class instance at the same time. Threads waiting
+     * for an instance of a smaller POOLED pool would never arrive, and keep the gate closed until its arrival timeout.
+     */
+    boolean useStartGate(boolean synchronizedStart, int threadCount, TestInstanceProvider testInstanceProvider){
+        if(!synchronizedStart) return false;
+        if(threadCount <= testInstanceProvider.getMaxConcurrentUsers()) return true;
+        System.out.println("Test method " + method.getName() + ": Starting the threads without start gate, since the " +
+                testInstanceProvider.getMaxConcurrentUsers() + " pooled test class instances are fewer than the " + threadCount + " threads.");
+        return false;
+    }
+
+    void testDurationCheck(long maxDurationInMilliseconds, long actualDurationInNanoseconds){
+        if(maxDurationInMilliseconds * 1_000_000 < actualDurationInNanoseconds)
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new TestMethodExecutionDurationCheckFailedException("The test took " + IterationStatistics.millis(actualDurationInNanoseconds) + " while the expected max duration was " + maxDurationInMilliseconds + " ms.")
+                    )
+            );
+    }
+
+    void latencyPercentileCheck(double percentile, double maxMilliseconds, IterationStatistics statistics){
+        if(maxMilliseconds < 0 || statistics.getIterationCount() == 0) return;
+        long actualNanos = statistics.getValueAtPercentile(percentile);
+        if(actualNanos > maxMilliseconds * 1_000_000d)
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new TestMethodExecutionDurationCheckFailedException("The p" + percentile + " iteration latency was " + IterationStatistics.millis(actualNanos) + " while the expected max was " + maxMilliseconds + " ms.")
+                    )
+            );
+    }
+
+    /**
+     * Prints the allocation and CPU time per iteration, if a budget is given or anything was recorded, and checks
+     * the mean values against the budgets, if given.
+     */
+    void resourceUsageCheck(long maxAllocatedBytesPerIteration, double maxCpuMillisPerIteration, ResourceUsageRecorder resourceUsage){
+        if(maxAllocatedBytesPerIteration >= 0 || maxCpuMillisPerIteration >= 0 || !resourceUsage.isEmpty())
+            System.out.println("Test method " + method.getName() + ": " + resourceUsage);
+        //Compared in whole bytes, as reported, so that a rare allocation by the JVM itself does not fail a budget of 0 bytes.
+        double meanAllocatedBytes = resourceUsage.getMeanAllocatedBytes();
+        if(maxAllocatedBytesPerIteration >= 0 && Math.round(meanAllocatedBytes) > maxAllocatedBytesPerIteration)
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new ResourceUsageCheckFailedException(String.format(Locale.ROOT, "The test method allocated %.0f bytes per iteration while the expected max was %d bytes.", meanAllocatedBytes, maxAllocatedBytesPerIteration))
+                    )
+            );
+        double meanCpuTimeNanos = resourceUsage.getMeanCpuTimeNanos();
+        if(maxCpuMillisPerIteration >= 0 && meanCpuTimeNanos > maxCpuMillisPerIteration * 1_000_000d)
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new ResourceUsageCheckFailedException("The test method used " + IterationStatistics.millis(meanCpuTimeNanos) + " CPU time per iteration while the expected max was " + maxCpuMillisPerIteration + " ms.")
+                    )
+            );
+    }
 
-        if(maxDuration < actualDuration)
+    /**
+     * Prints the GC pauses during the test, if a limit is given or there were any, and checks them against the limits, if given.
+     */
+    void gcPauseCheck(double maxTotalGcPauseMillis, double maxGcPauseFraction, GcPauseMonitor gcPauses){
+        if(maxTotalGcPauseMillis >= 0 || maxGcPauseFraction >= 0 || gcPauses.getPauseCount() > 0)
+            System.out.println("Test method " + method.getName() + ": " + gcPauses);
+        String slowIterationReport = gcPauses.slowIterationReport();
+        if(!slowIterationReport.isEmpty())
+            System.out.println("Test method " + method.getName() + ": " + slowIterationReport);
+        long totalPauseNanos = gcPauses.getTotalPauseNanos();
+        if(maxTotalGcPauseMillis >= 0 && totalPauseNanos > maxTotalGcPauseMillis * 1_000_000d)
             notifier.fireTestFailure(
                     new Failure(
                             Description.createTestDescription(testClass, method.getName()),
-                            new TestMethodExecutionDurationCheckFailedException("The test took " + actualDuration + " ms while the expected max duration was " + maxDuration + " ms.")
+                            new GcPauseCheckFailedException("The GC pauses during the test took " + IterationStatistics.millis(totalPauseNanos) + " in total while the expected max was " + maxTotalGcPauseMillis + " ms.")
                     )
             );
+        double pauseFraction = gcPauses.getPauseFraction();
+        if(maxGcPauseFraction >= 0 && pauseFraction > maxGcPauseFraction)
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new GcPauseCheckFailedException(String.format(Locale.ROOT, "The GC pauses took %.4f of the test time while the expected max was %.4f.", pauseFraction, maxGcPauseFraction))
+                    )
+            );
+    }
+
+    /**
+     * Compares the metrics of this run with the baseline of earlier runs of the test method in the same environment,
+     * if a regression tolerance is given. The run is added to the baseline, also if it regressed.
+     */
+    void baselineCheck(double failOnRegressionPercent, PerformanceBaseline baseline){
+        if(failOnRegressionPercent < 0) return;
+        try {
+            int baselineRunCount = baseline.baselineRunCount();
+            List<String> regressions = baseline.regressions(failOnRegressionPercent);
+            if(baselineRunCount < PerformanceBaseline.MIN_BASELINE_RUN_COUNT)
+                System.out.println("Test method " + method.getName() + ": Collecting performance baseline, " + baselineRunCount + " of " + PerformanceBaseline.MIN_BASELINE_RUN_COUNT + " runs needed before regressions are checked.");
+            else if(regressions.isEmpty())
+                System.out.println("Test method " + method.getName() + ": No regression compared to the baseline of the last " + baselineRunCount + " runs.");
+            for(String regression : regressions)
+                notifier.fireTestFailure(
+                        new Failure(
+                                Description.createTestDescription(testClass, method.getName()),
+                                new PerformanceRegressionException("Performance regression: " + regression + " Baseline " + baseline.getFile() + ".")
+                        )
+                );
+            baseline.save();
+        } catch (IOException e) {
+            System.out.println("Could not use the performance baseline " + baseline.getFile() + " of test method " + method.getName() + ": " + e);
+        }
+    }
+
+    /**
+     * Starts a flight recording of the test if a directory is given. The recording is written to the
+     * directory by stopFlightRecording only if the test has failed in between.
+     */
+    void startFlightRecording(String directory){
+        if(directory.isEmpty()) return;
+        flightRecording = FlightRecorderSupport.get().startFailureRecording(method, Paths.get(directory));
+        if(flightRecording == null){
+            System.out.println("Flight recording of test method " + method.getName() + " skipped since Java Flight Recorder is not available.");
+            return;
+        }
+        Description description = Description.createTestDescription(testClass, method.getName());
+        flightRecordingFailureListener = new RunListener(){
+            @Override
+            public void testFailure(Failure failure) {
+                if(description.equals(failure.getDescription())) failedDuringFlightRecording = true;
+            }
+        };
+        notifier.addListener(flightRecordingFailureListener);
     }
 
+    /**
+     * Stops the flight recording, if started. Called after all checks of the test have been made.
+     */
+    void stopFlightRecording(){
+        if(flightRecording == null) return;
+        notifier.removeListener(flightRecordingFailureListener);
+        try {
+            Path file = flightRecording.stop(failedDuringFlightRecording);
+            if(file != null)
+                System.out.println("Test method " + method.getName() + " failed. Flight recording written to " + file + ".");
+        } catch (IOException e) {
+            System.out.println("Could not write flight recording of test method " + method.getName() + ": " + e);
+        }
+        flightRecording = null;
+    }
+
+    /**
+     * Waits for the test method threads to finish, failing the test right away on a deadlock or stall, or after a minute.
+     * @param expectedDurationNanos Expected duration of the test method, used for stall detection, or 0 if unknown.
+     */
+    void awaitTestMethodThreads(ExecutorService testThreadPool, List<TestMethodExecutor> executors, long expectedDurationNanos, long startTime){
+        TestWatchdog watchdog = new TestWatchdog(testThreadPool, executors, expectedDurationNanos, TimeUnit.MINUTES.toNanos(1));
+        TestWatchdog.Outcome outcome;
+        try {
+            outcome = watchdog.awaitTermination();
+        } catch (InterruptedException e) {
+            errors.add(e);
+            return;
+        }
+        Exception failure;
+        switch (outcome){
+            case DEADLOCK:
+                failure = new DeadlockDetectedException("The test method threads deadlocked. " + watchdog.getDiagnosis());
+                break;
+            case STALL:
+                failure = new StallDetectedException("The test method threads stalled. " + watchdog.getDiagnosis());
+                break;
+            case TIMEOUT:
+                System.out.println("Test method " + method.getName() + " timed out. " + watchdog.getDiagnosis());
+                failure = new TestTimedOutException(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), TimeUnit.MILLISECONDS);
+                break;
+            default:
+                return;
+        }
+        notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), failure));
+    }
+
+    /**
+     * Fails the test on the collected errors. A single error fails the test as is, while several are summarized
+     * by error signature in one failure, with a sampled exception of each signature attached.
+     */
     void innerExceptionCheck(){
-        for(Exception e : innerExceptions){
-            if(!e.getClass().equals(expectedException))
-                notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), e));
+        if(errors.isEmpty()) return;
+        if(errors.getErrorCount() == 1){
+            notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), errors.getGroups().get(0).getSamples().get(0)));
+            return;
+        }
+        String summary = "Test method " + method.getName() + ": " + errors;
+        System.out.println(summary);
+        TestMethodErrorsException failure = new TestMethodErrorsException(summary);
+        for(ErrorAggregator.ErrorGroup group : errors.getGroups()){
+            Exception sample = group.getSamples().get(0);
+            if(failure.getCause() == null) failure.initCause(sample);
+            else failure.addSuppressed(sample);
         }
+        notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), failure));
     }
 
 }
@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when the test method threads deadlock, with the thread dumps of the deadlocked threads.
+ */
+public class DeadlockDetectedException extends Exception {
+
+    public DeadlockDetectedException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the exceptions of a test from any number of threads, grouped by their error signature, the
+ * exception type and top stack frames of the root cause. Each group keeps a count, the time of the first
+ * and last occurrence, and a reservoir sample of a few exception instances, so memory use stays bounded
+ * however many iterations fail. Adding an exception of a known group takes no lock.
+ * <p>
+ * Exceptions of the expected exception class of the test, thrown directly or as root cause, are only counted.
+ */
+class ErrorAggregator {
+
+    static final int SAMPLE_SIZE = 5;
+    static final int MAX_GROUP_COUNT = 100;
+    static final String OVERFLOW_SIGNATURE = "Other errors, more than " + MAX_GROUP_COUNT + " distinct error signatures";
+
+    static class ErrorGroup {
+        final String signature;
+        final long firstNanos;
+        final AtomicLong lastNanos;
+        private final ReservoirSample<Exception> samples = new ReservoirSample<>(SAMPLE_SIZE);
+
+        ErrorGroup(String signature, long firstNanos){
+            this.signature = signature;
+            this.firstNanos = firstNanos;
+            this.lastNanos = new AtomicLong(firstNanos);
+        }
+
+        void add(Exception e, long now){
+            samples.add(e);
+            lastNanos.accumulateAndGet(now, Math::max);
+        }
+
+        long getCount(){
+            return samples.getCount();
+        }
+
+        List<Exception> getSamples(){
+            return samples.getItems();
+        }
+    }
+
+    private final Class<?> expectedException;
+    private final long startNanos;
+    private final Map<String, ErrorGroup> groups = new ConcurrentHashMap<>();
+    private final LongAdder expectedCount = new LongAdder();
+
+    /**
+     * @param expectedException Exception class expected by the test, or null.
+     */
+    ErrorAggregator(Class<?> expectedException){
+        this.expectedException = expectedException;
+        this.startNanos = System.nanoTime();
+    }
+
+    void add(Exception e){
+        if(isExpected(e)){
+            expectedCount.increment();
+            return;
+        }
+        long now = System.nanoTime();
+        String signature = ErrorSignature.describe(e);
+        ErrorGroup group = groups.get(signature);
+        if(group == null){
+            if(groups.size() >= MAX_GROUP_COUNT) signature = OVERFLOW_SIGNATURE;
+            group = groups.computeIfAbsent(signature, key -> new ErrorGroup(key, now));
+        }
+        group.add(e, now);
+    }
+
+    /**
+     * The test method exceptions arrive wrapped, so the root cause is compared as well.
+     */
+    private boolean isExpected(Exception e){
+        return expectedException != null &&
+                (e.getClass().equals(expectedException) || ErrorSignature.rootCause(e).getClass().equals(expectedException));
+    }
+
+    boolean isEmpty(){
+        return groups.isEmpty();
+    }
+
+    long getErrorCount(){
+        long errorCount = 0;
+        for(ErrorGroup group : groups.values()) errorCount += group.getCount();
+        return errorCount;
+    }
+
+    long getExpectedCount(){
+        return expectedCount.sum();
+    }
+
+    /**
+     * @return The error groups, most frequent first.
+     */
+    List<ErrorGroup> getGroups(){
+        List<ErrorGroup> ranked = new ArrayList<>(groups.values());
+        ranked.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return ranked;
+    }
+
+    @Override
+    public String toString() {
+        List<ErrorGroup> ranked = getGroups();
+        StringBuilder summary = new StringBuilder(getErrorCount() + " errors with " + ranked.size() + " distinct error signatures.");
+        for(ErrorGroup group : ranked)
+            summary.append(System.lineSeparator()).append(String.format(Locale.ROOT, "%8d x %s, first after %s, last after %s.", group.getCount(), group.signature,
+                    IterationStatistics.millis(group.firstNanos - startNanos), IterationStatistics.millis(group.lastNanos.get() - startNanos)));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Describes an exception by its type and top stack frames, so that failures with the same cause can be grouped.
+ * Stack frames of the test runner invoking the test method are left out.
+ */
+class ErrorSignature {
+
+    static final int STACK_FRAME_COUNT = 3;
+
+    private ErrorSignature(){}
+
+    /**
+     * Unwraps the exceptions added by the test runners to find the exception thrown by the test code.
+     */
+    static Throwable rootCause(Throwable throwable){
+        while((throwable instanceof InvocationTargetException || throwable instanceof TestMethodExecutionException) && throwable.getCause() != null)
+            throwable = throwable.getCause();
+        return throwable;
+    }
+
+    static String describe(Throwable throwable){
+        Throwable cause = rootCause(throwable);
+        StringBuilder signature = new StringBuilder(cause.getClass().getName());
+        StackTraceElement[] stackTrace = cause.getStackTrace();
+        for(int i = 0; i < Math.min(STACK_FRAME_COUNT, stackTrace.length); i++){
+            if(stackTrace[i].getClassName().equals(TestClassMetadata.class.getName())) break;
+            signature.append(i == 0 ? " at " : " < ").append(stackTrace[i]);
+        }
+        return signature.toString();
+    }
+}
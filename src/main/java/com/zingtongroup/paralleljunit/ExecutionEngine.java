@@ -0,0 +1,20 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Service provider interface for the threads executing the test method iterations.
+ * Custom implementations may be selected by setting the system property
+ * paralleljunit.executionEngine to the fully qualified name of a class implementing
+ * this interface with a public parameter-less constructor.
+ */
+public interface ExecutionEngine {
+
+    /**
+     * Creates a new executor service for one test method execution.
+     * The executor service is shut down by the test runner when the test method execution is finished.
+     * @param threadCount The number of test method executions the runner intends to run concurrently.
+     * @return Executor service running the submitted test method executions.
+     */
+    ExecutorService createExecutorService(int threadCount);
+}
@@ -0,0 +1,51 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * The execution engines available for the test runners.
+ */
+public enum ExecutionEngineType {
+    /**
+     * The engine given by the paralleljunit.executionEngine system property, or PLATFORM_THREADS if not set.
+     */
+    DEFAULT,
+    /**
+     * A fixed thread pool with one platform thread per concurrent test method execution.
+     */
+    PLATFORM_THREADS,
+    /**
+     * A ForkJoinPool shared between all tests, sized by the number of processors. Test method threads beyond that wait for a free pool thread. Suited for CPU bound tests.
+     */
+    FORK_JOIN_POOL,
+    /**
+     * One virtual thread per test method execution. Requires Java 21 or later. Suited for I/O bound tests with many concurrent threads.
+     */
+    VIRTUAL_THREADS;
+
+    static final String EXECUTION_ENGINE_PROPERTY = "paralleljunit.executionEngine";
+
+    ExecutionEngine resolve(){
+        switch (this){
+            case PLATFORM_THREADS:
+                return new PlatformThreadExecutionEngine();
+            case FORK_JOIN_POOL:
+                return new ForkJoinPoolExecutionEngine();
+            case VIRTUAL_THREADS:
+                return new VirtualThreadExecutionEngine();
+            default:
+                return resolveFromSystemProperty();
+        }
+    }
+
+    private static ExecutionEngine resolveFromSystemProperty(){
+        String engine = System.getProperty(EXECUTION_ENGINE_PROPERTY);
+        if(engine == null || engine.trim().isEmpty()) return PLATFORM_THREADS.resolve();
+        for(ExecutionEngineType type : values()){
+            if(type != DEFAULT && type.name().equalsIgnoreCase(engine.trim())) return type.resolve();
+        }
+        try {
+            return (ExecutionEngine) Class.forName(engine.trim()).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not create execution engine '" + engine + "' given by system property " + EXECUTION_ENGINE_PROPERTY + ".", e);
+        }
+    }
+}
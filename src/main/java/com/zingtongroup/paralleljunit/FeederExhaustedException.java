@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when a test method execution needs a record from a UNIQUE_ONCE feeder that has handed out all its records.
+ */
+public class FeederExhaustedException extends Exception {
+
+    public FeederExhaustedException(String message){
+        super(message);
+    }
+
+}
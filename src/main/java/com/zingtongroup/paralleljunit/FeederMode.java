@@ -0,0 +1,20 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Order in which the records of a feeder file are handed out to the test method executions.
+ */
+public enum FeederMode {
+    /**
+     * Records are handed out in file order, starting over from the first record after the last.
+     */
+    CIRCULAR,
+    /**
+     * Each record is handed out at most once. When all records are used a load test worker stops,
+     * and a parallel test thread fails with a FeederExhaustedException.
+     */
+    UNIQUE_ONCE,
+    /**
+     * Each execution gets a record picked at random.
+     */
+    RANDOM
+}
@@ -0,0 +1,101 @@
+package com.zingtongroup.paralleljunit;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+
+/**
+ * Emits test iterations, ramp-up steps and measurement phases as Java Flight Recorder events, and records
+ * flight recordings that are kept only when a test fails. The JFR implementation is loaded reflectively,
+ * so on JVMs without Java Flight Recorder all calls are no-ops.
+ * <p>
+ * The events are cheap when no recording is running: no iteration event is created, and the other events are
+ * disabled by JFR so their fields are never set.
+ */
+abstract class FlightRecorderSupport {
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_FAILURE = "failure";
+    static final String OUTCOME_ABORTED = "aborted";
+
+    private static final FlightRecorderSupport instance = create();
+
+    /**
+     * A running flight recording of one test.
+     */
+    interface FailureRecording {
+
+        /**
+         * Stops the recording and writes it to disk if requested.
+         * @return The written file, or null if the recording was discarded.
+         */
+        Path stop(boolean dump) throws IOException;
+    }
+
+    private static FlightRecorderSupport create(){
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return (FlightRecorderSupport) Class.forName(FlightRecorderSupport.class.getPackage().getName() + ".JfrFlightRecorderSupport")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Disabled();
+        }
+    }
+
+    static FlightRecorderSupport get(){
+        return instance;
+    }
+
+    /**
+     * Called before the allocation and CPU time of the iteration are read, so that the event is not charged to the test method.
+     * @return Handle of the started iteration event, passed to endIteration, or null if iteration events are not recorded.
+     */
+    abstract Object beginIteration();
+
+    abstract void endIteration(Object iteration, Method testMethod, int threadSlot, String outcome);
+
+    /**
+     * @return Handle of the started phase event, passed to endPhase.
+     */
+    abstract Object beginPhase();
+
+    abstract void endPhase(Object phase, Method testMethod, String phaseName);
+
+    abstract void rampUpStep(Method testMethod, int activeThreadCount);
+
+    /**
+     * Starts a recording with the JFR profile settings, including allocation and lock profiling.
+     * @return The recording, or null if Java Flight Recorder is not available.
+     */
+    abstract FailureRecording startFailureRecording(Method testMethod, Path directory);
+
+    private static class Disabled extends FlightRecorderSupport {
+
+        @Override
+        Object beginIteration() {
+            return null;
+        }
+
+        @Override
+        void endIteration(Object iteration, Method testMethod, int threadSlot, String outcome) {
+        }
+
+        @Override
+        Object beginPhase() {
+            return null;
+        }
+
+        @Override
+        void endPhase(Object phase, Method testMethod, String phaseName) {
+        }
+
+        @Override
+        void rampUpStep(Method testMethod, int activeThreadCount) {
+        }
+
+        @Override
+        FailureRecording startFailureRecording(Method testMethod, Path directory) {
+            return null;
+        }
+    }
+}
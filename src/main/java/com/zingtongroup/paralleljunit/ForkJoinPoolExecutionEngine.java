@@ -0,0 +1,119 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Execution engine submitting to one ForkJoinPool shared between all tests.
+ * Each test gets its own executor service view of the shared pool, so shutting it down
+ * only affects the tasks of that test.
+ * <p>
+ * The pool is sized by the number of processors. A test with more threads than that has its remaining tasks
+ * queued until others have finished, which is warned about when the executor service is created.
+ */
+class ForkJoinPoolExecutionEngine implements ExecutionEngine {
+
+    private static final ForkJoinPool sharedPool = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("paralleljunit-" + thread.getName());
+                thread.setDaemon(true);
+                return thread;
+            },
+            null,
+            true);
+
+    @Override
+    public ExecutorService createExecutorService(int threadCount) {
+        if(threadCount > sharedPool.getParallelism())
+            System.out.println("Warning: " + threadCount + " threads requested, but the shared ForkJoinPool runs at most " +
+                    sharedPool.getParallelism() + " tasks at the same time. The other tasks wait until a task has finished.");
+        return new SharedPoolExecutorService();
+    }
+
+    static class SharedPoolExecutorService extends AbstractExecutorService {
+
+        private final AtomicInteger tasksInProgress = new AtomicInteger();
+        private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+        private volatile boolean isShutdown;
+        private volatile boolean isShutdownNow;
+
+        @Override
+        public void execute(Runnable command) {
+            if(isShutdown) throw new RejectedExecutionException("Executor has been shut down.");
+            tasksInProgress.incrementAndGet();
+            try {
+                sharedPool.execute(() -> {
+                    Thread currentThread = Thread.currentThread();
+                    runningThreads.add(currentThread);
+                    try {
+                        if(!isShutdownNow) command.run();
+                    } finally {
+                        runningThreads.remove(currentThread);
+                        Thread.interrupted();
+                        taskFinished();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                taskFinished();
+                throw e;
+            }
+        }
+
+        private void taskFinished(){
+            if(tasksInProgress.decrementAndGet() == 0){
+                synchronized (this){
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            isShutdown = true;
+            synchronized (this){
+                notifyAll();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            isShutdownNow = true;
+            shutdown();
+            for(Thread thread : runningThreads)
+                thread.interrupt();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return isShutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return isShutdown && tasksInProgress.get() == 0;
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while(!isTerminated()){
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when the garbage collection pauses during a test exceed the given limits.
+ */
+public class GcPauseCheckFailedException extends Exception {
+
+    public GcPauseCheckFailedException(String message){
+        super(message);
+    }
+
+}
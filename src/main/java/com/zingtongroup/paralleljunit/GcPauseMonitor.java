@@ -0,0 +1,254 @@
+package com.zingtongroup.paralleljunit;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.RuntimeMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the garbage collection pauses during a test through GarbageCollectorMXBean notifications,
+ * so that slow iterations can be correlated with collector pauses. Collections reported by
+ * concurrent collector cycles are not counted as pauses.
+ * <p>
+ * The GC start and end times are reported in milliseconds on a JVM internal clock whose zero differs slightly from
+ * the JVM uptime. The offset is estimated as the smallest difference seen between the uptime when a notification is
+ * received and the end of its collection, and used to place the pauses on the System.nanoTime timeline of the test.
+ * <p>
+ * The pause count and total pause time cover all pauses, while only a reservoir sample of the pauses and of the
+ * slow iterations is kept for the correlation, so memory use stays bounded in long soak tests.
+ */
+class GcPauseMonitor implements NotificationListener {
+
+    static final int MAX_SLOW_ITERATIONS = 100;
+    static final int MAX_SAMPLED_PAUSES = 1000;
+    private static final long PRECISION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_NOTIFICATION_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    static class GcPause {
+        final String collector;
+        final String cause;
+        final long startTime;
+        final long durationNanos;
+        final long heapUsedBefore;
+        final long heapUsedAfter;
+
+        GcPause(String collector, String cause, long startTime, long durationNanos, long heapUsedBefore, long heapUsedAfter){
+            this.collector = collector;
+            this.cause = cause;
+            this.startTime = startTime;
+            this.durationNanos = durationNanos;
+            this.heapUsedBefore = heapUsedBefore;
+            this.heapUsedAfter = heapUsedAfter;
+        }
+
+        /**
+         * Pause times have millisecond precision, so pauses within a millisecond of the interval count as overlapping.
+         */
+        boolean overlaps(long start, long end){
+            return startTime - PRECISION_NANOS < end && startTime + durationNanos + PRECISION_NANOS > start;
+        }
+
+        @Override
+        public String toString() {
+            return IterationStatistics.millis(durationNanos) + " " + collector + " (" + cause + ", heap " +
+                    heapUsedBefore / (1024 * 1024) + " MB -> " + heapUsedAfter / (1024 * 1024) + " MB)";
+        }
+    }
+
+    private static final LongAccumulator gcClockOffsetMillis = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final ReservoirSample<GcPause> pauses = new ReservoirSample<>(MAX_SAMPLED_PAUSES);
+    private final LongAdder totalPauseNanos = new LongAdder();
+    private final AtomicReference<GcPause> longestPause = new AtomicReference<>();
+    private final ReservoirSample<long[]> slowIterations = new ReservoirSample<>(MAX_SLOW_ITERATIONS);
+    private final AtomicLong notificationCount = new AtomicLong();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final RuntimeMXBean runtimeMXBean;
+    private final long uptimeReference;
+    private final long nanoTimeReference;
+    private long startTime;
+    private long stopTime;
+    private long collectionCountAtStart;
+
+    GcPauseMonitor(){
+        this.runtimeMXBean = ManagementFactory.getRuntimeMXBean();
+        this.nanoTimeReference = System.nanoTime();
+        this.uptimeReference = runtimeMXBean.getUptime();
+    }
+
+    void start(){
+        startTime = System.nanoTime();
+        collectionCountAtStart = collectionCount();
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+            if(!(collector instanceof NotificationEmitter)) continue;
+            NotificationEmitter emitter = (NotificationEmitter) collector;
+            emitter.addNotificationListener(this,
+                    notification -> GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()),
+                    null);
+            emitters.add(emitter);
+        }
+    }
+
+    /**
+     * Stops listening. Notifications are delivered asynchronously, so this waits briefly for the notifications
+     * of collections that ended before the stop.
+     */
+    void stop(){
+        stopTime = System.nanoTime();
+        long expectedNotificationCount = collectionCount() - collectionCountAtStart;
+        while(notificationCount.get() < expectedNotificationCount && System.nanoTime() - stopTime < MAX_NOTIFICATION_DELAY_NANOS)
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        for(NotificationEmitter emitter : emitters){
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                //Already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            gcClockOffsetMillis.accumulate(runtimeMXBean.getUptime() - info.getGcInfo().getEndTime());
+            if(isPause(info)) recordPause(info);
+        } finally {
+            notificationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a pause, unless it ended before the monitoring started, and keeps it in the sample with its start
+     * time on the JVM internal GC clock. The start is placed on the test timeline by getPauses, with the final clock offset.
+     */
+    private void recordPause(GarbageCollectionNotificationInfo info){
+        GcInfo gcInfo = info.getGcInfo();
+        GcPause pause = new GcPause(
+                info.getGcName(),
+                info.getGcCause(),
+                gcInfo.getStartTime(),
+                TimeUnit.MILLISECONDS.toNanos(gcInfo.getDuration()),
+                heapUsed(gcInfo.getMemoryUsageBeforeGc()),
+                heapUsed(gcInfo.getMemoryUsageAfterGc()));
+        if(!toTestTimeline(pause, gcClockOffsetMillis.get()).overlaps(startTime, Long.MAX_VALUE)) return;
+        pauses.add(pause);
+        totalPauseNanos.add(pause.durationNanos);
+        longestPause.accumulateAndGet(pause, (longest, candidate) -> longest == null || candidate.durationNanos > longest.durationNanos ? candidate : longest);
+    }
+
+    private GcPause toTestTimeline(GcPause pause, long offsetMillis){
+        return new GcPause(pause.collector, pause.cause,
+                nanoTimeReference + TimeUnit.MILLISECONDS.toNanos(pause.startTime + offsetMillis - uptimeReference),
+                pause.durationNanos, pause.heapUsedBefore, pause.heapUsedAfter);
+    }
+
+    private static boolean isPause(GarbageCollectionNotificationInfo info){
+        String action = info.getGcAction().toLowerCase(Locale.ROOT);
+        if(info.getGcName().contains("Cycles")) return false; //ZGC and Shenandoah concurrent cycles
+        return !action.contains("concurrent") || action.contains("pause");
+    }
+
+    private static long collectionCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+
+    private static long heapUsed(Map<String, MemoryUsage> memoryUsage){
+        long used = 0;
+        for(MemoryUsage usage : memoryUsage.values()) used += usage.getUsed();
+        return used;
+    }
+
+    /**
+     * Remembers an iteration that exceeded its duration threshold, to be correlated with the pauses at test end.
+     */
+    void recordSlowIteration(long iterationStartTime, long durationNanos){
+        slowIterations.add(new long[]{iterationStartTime, durationNanos});
+    }
+
+    /**
+     * @return The sampled pauses reported while monitoring, all of them unless there were more than MAX_SAMPLED_PAUSES.
+     */
+    List<GcPause> getPauses(){
+        List<GcPause> result = new ArrayList<>();
+        long offset = gcClockOffsetMillis.get();
+        for(GcPause pause : pauses.getItems()) result.add(toTestTimeline(pause, offset));
+        return result;
+    }
+
+    long getPauseCount(){
+        return pauses.getCount();
+    }
+
+    long getTotalPauseNanos(){
+        return totalPauseNanos.sum();
+    }
+
+    /**
+     * @return Share of the monitored time spent in GC pauses.
+     */
+    double getPauseFraction(){
+        if(stopTime <= startTime) return 0;
+        return (double) getTotalPauseNanos() / (stopTime - startTime);
+    }
+
+    @Override
+    public String toString() {
+        GcPause longest = longestPause.get();
+        if(longest == null) return "No GC pauses.";
+        return String.format(Locale.ROOT, "%d GC pauses, total %s (%.2f%% of %s), longest %s.",
+                getPauseCount(), IterationStatistics.millis(getTotalPauseNanos()), getPauseFraction() * 100,
+                IterationStatistics.millis(stopTime - startTime), longest);
+    }
+
+    /**
+     * Describes the slow iterations and the GC pauses they overlapped, or an empty string if there were none.
+     * If there were more than MAX_SLOW_ITERATIONS slow iterations or MAX_SAMPLED_PAUSES pauses, the samples are correlated.
+     */
+    String slowIterationReport(){
+        if(slowIterations.getCount() == 0) return "";
+        List<GcPause> testPauses = getPauses();
+        int overlappingCount = 0;
+        StringBuilder details = new StringBuilder();
+        List<long[]> sampledSlowIterations = slowIterations.getItems();
+        for(long[] slowIteration : sampledSlowIterations){
+            long end = slowIteration[0] + slowIteration[1];
+            List<GcPause> overlapping = new ArrayList<>();
+            for(GcPause pause : testPauses)
+                if(pause.overlaps(slowIteration[0], end)) overlapping.add(pause);
+            if(overlapping.isEmpty()) continue;
+            overlappingCount++;
+            details.append(System.lineSeparator()).append("    Iteration at ")
+                    .append(String.format(Locale.ROOT, "%.3f s", (slowIteration[0] - startTime) / 1e9))
+                    .append(" took ").append(IterationStatistics.millis(slowIteration[1]))
+                    .append(", overlapping GC pause ").append(overlapping.get(0));
+            if(overlapping.size() > 1) details.append(" and ").append(overlapping.size() - 1).append(" more");
+        }
+        String summary = overlappingCount + " of " + sampledSlowIterations.size() +
+                (slowIterations.isSampled() ? " sampled of " + slowIterations.getCount() : "") + " slow iterations overlapped a" +
+                (pauses.isSampled() ? " sampled" : "") + " GC pause.";
+        return summary + details;
+    }
+}
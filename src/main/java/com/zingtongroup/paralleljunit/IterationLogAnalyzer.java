@@ -0,0 +1,180 @@
+package com.zingtongroup.paralleljunit;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Command line analyzer for the binary iteration log written by a load test with an iterationLogFile.
+ * Streams the file and prints latency and throughput per time window, overall percentiles and error bursts.
+ * <p>
+ * Usage: java -jar ParallelJUnit.jar &lt;iteration log file&gt; [window size in milliseconds]
+ */
+public class IterationLogAnalyzer {
+
+    private static final long DEFAULT_WINDOW_MILLISECONDS = 1000;
+    private static final int MAX_WINDOW_COUNT = 5000;
+
+    private final Path file;
+    private final long requestedWindowNanos;
+    private final Map<Integer, String> errorSignatures;
+    private String testName;
+    private long testStartEpochMillis;
+
+    public IterationLogAnalyzer(Path file, long windowMilliseconds){
+        this.file = file;
+        this.requestedWindowNanos = windowMilliseconds * 1_000_000;
+        this.errorSignatures = new HashMap<>();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1){
+            System.err.println("Usage: java -jar ParallelJUnit.jar <iteration log file> [window size in milliseconds]");
+            System.exit(2);
+        }
+        long windowMilliseconds = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_WINDOW_MILLISECONDS;
+        new IterationLogAnalyzer(Paths.get(args[0]), windowMilliseconds).analyze(System.out);
+    }
+
+    private interface RecordVisitor {
+        void visit(long startNanos, long durationNanos, byte outcome, int errorSignature);
+    }
+
+    private static class Window {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        long errorCount;
+        long abortedCount;
+        Map<Integer, Long> errorCountsBySignature;
+    }
+
+    public void analyze(PrintStream out) throws IOException {
+        long[] lastStartNanos = {0};
+        readRecords((startNanos, durationNanos, outcome, errorSignature) -> lastStartNanos[0] = Math.max(lastStartNanos[0], startNanos));
+        long windowNanos = Math.max(1_000_000, requestedWindowNanos);
+        if(lastStartNanos[0] / windowNanos >= MAX_WINDOW_COUNT){
+            windowNanos = (lastStartNanos[0] / MAX_WINDOW_COUNT / 1_000_000 + 1) * 1_000_000;
+            out.println("Window size increased to " + windowNanos / 1_000_000 + " ms to keep the window count below " + MAX_WINDOW_COUNT + ".");
+        }
+
+        TreeMap<Long, Window> windows = new TreeMap<>();
+        LatencyHistogram total = new LatencyHistogram();
+        long[] totalErrorsAndAborted = {0, 0};
+        long windowSize = windowNanos;
+        readRecords((startNanos, durationNanos, outcome, errorSignature) -> {
+            Window window = windows.computeIfAbsent(startNanos / windowSize, index -> new Window());
+            if(outcome == IterationLogWriter.OUTCOME_SUCCESS){
+                window.histogram.record(durationNanos);
+                total.record(durationNanos);
+            } else if(outcome == IterationLogWriter.OUTCOME_FAILURE){
+                window.errorCount++;
+                totalErrorsAndAborted[0]++;
+                if(window.errorCountsBySignature == null) window.errorCountsBySignature = new HashMap<>();
+                window.errorCountsBySignature.merge(errorSignature, 1L, Long::sum);
+            } else if(outcome == IterationLogWriter.OUTCOME_ABORTED){
+                window.abortedCount++;
+                totalErrorsAndAborted[1]++;
+            }
+        });
+
+        out.println("Iteration log " + file + " of test " + testName + " started " + new Date(testStartEpochMillis) + ".");
+        out.println(String.format(Locale.ROOT, "%12s %12s %14s %8s %12s %12s %12s", "Window (s)", "Iterations", "Iterations/s", "Errors", "p50 (ms)", "p99 (ms)", "Max (ms)"));
+        for(Map.Entry<Long, Window> entry : windows.entrySet()){
+            LatencyHistogram histogram = entry.getValue().histogram;
+            out.println(String.format(Locale.ROOT, "%12.1f %12d %14.1f %8d %12.3f %12.3f %12.3f",
+                    entry.getKey() * windowNanos / 1e9,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() * 1e9 / windowNanos,
+                    entry.getValue().errorCount,
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getMaxNanos() / 1e6));
+        }
+        out.println("Total: " + new IterationStatistics(total, lastStartNanos[0]) +
+                " " + totalErrorsAndAborted[0] + " iterations failed and " + totalErrorsAndAborted[1] + " were aborted at test end.");
+        printErrorBursts(out, windows, windowNanos);
+    }
+
+    private void printErrorBursts(PrintStream out, TreeMap<Long, Window> windows, long windowNanos){
+        long burstStart = -1;
+        long burstEnd = -1;
+        Map<Integer, Long> burstErrors = new HashMap<>();
+        for(Map.Entry<Long, Window> entry : windows.entrySet()){
+            Window window = entry.getValue();
+            if(window.errorCount == 0) continue;
+            if(burstStart >= 0 && entry.getKey() > burstEnd + 1){
+                printErrorBurst(out, burstStart, burstEnd, burstErrors, windowNanos);
+                burstErrors.clear();
+                burstStart = -1;
+            }
+            if(burstStart < 0) burstStart = entry.getKey();
+            burstEnd = entry.getKey();
+            for(Map.Entry<Integer, Long> errors : window.errorCountsBySignature.entrySet())
+                burstErrors.merge(errors.getKey(), errors.getValue(), Long::sum);
+        }
+        if(burstStart >= 0) printErrorBurst(out, burstStart, burstEnd, burstErrors, windowNanos);
+    }
+
+    private void printErrorBurst(PrintStream out, long firstWindow, long lastWindow, Map<Integer, Long> errors, long windowNanos){
+        long errorCount = 0;
+        for(long count : errors.values()) errorCount += count;
+        out.println(String.format(Locale.ROOT, "Error burst %.1f s - %.1f s: %d errors.", firstWindow * windowNanos / 1e9, (lastWindow + 1) * windowNanos / 1e9, errorCount));
+        for(Map.Entry<Integer, Long> entry : errors.entrySet()){
+            String signature = errorSignatures.get(entry.getKey());
+            out.println("    " + entry.getValue() + " x " + (signature == null ? "error signature " + entry.getKey() : signature));
+        }
+    }
+
+    private void readRecords(RecordVisitor visitor) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))){
+            if(in.readInt() != IterationLogWriter.MAGIC) throw new IOException(file + " is not an iteration log file.");
+            short version = in.readShort();
+            if(version != IterationLogWriter.VERSION) throw new IOException("Unsupported iteration log version " + version + ".");
+            short recordSize = in.readShort();
+            testStartEpochMillis = in.readLong();
+            byte[] name = new byte[in.readShort()];
+            in.readFully(name);
+            testName = new String(name, StandardCharsets.UTF_8);
+            while(true){
+                long startNanos;
+                try {
+                    startNanos = in.readLong();
+                } catch (EOFException e) {
+                    return; //Log without dictionary, e.g. from a test that never finished.
+                }
+                long durationNanos = in.readLong();
+                in.readInt(); //Worker index
+                in.readInt(); //Thread id
+                byte outcome = in.readByte();
+                in.readByte();
+                in.readShort();
+                int errorSignature = in.readInt();
+                in.skipBytes(recordSize - IterationLogWriter.RECORD_SIZE);
+                if(outcome == IterationLogWriter.OUTCOME_DICTIONARY){
+                    readErrorSignatures(in, durationNanos);
+                    return;
+                }
+                visitor.visit(startNanos, durationNanos, outcome, errorSignature);
+            }
+        }
+    }
+
+    private void readErrorSignatures(DataInputStream in, long count) throws IOException {
+        for(long i = 0; i < count; i++){
+            int id = in.readInt();
+            byte[] signature = new byte[in.readShort()];
+            in.readFully(signature);
+            errorSignatures.put(id, new String(signature, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.zingtongroup.paralleljunit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams one fixed-width binary record per load test iteration to a file.
+ * Each worker appends to its own buffer. Full buffers are handed over to a single writer thread
+ * owning the FileChannel, so memory use stays flat regardless of test duration and interrupted
+ * workers never close the channel. Read the file with {@link IterationLogAnalyzer}.
+ * <p>
+ * File layout: a header (magic, version, record size, test start epoch millis, test name),
+ * followed by 32 byte records (start nanos relative to test start, duration nanos, worker index,
+ * thread id, outcome, error signature id), and finally a dictionary record followed by the
+ * error signature texts with their ids. Id 0 means no error.
+ */
+class IterationLogWriter {
+
+    static final int MAGIC = 0x504A494C;
+    static final short VERSION = 1;
+    static final short RECORD_SIZE = 32;
+    static final byte OUTCOME_SUCCESS = 0;
+    static final byte OUTCOME_FAILURE = 1;
+    static final byte OUTCOME_ABORTED = 2;
+    static final byte OUTCOME_DICTIONARY = 127;
+    private static final int BUFFER_MEMORY_BUDGET = 16 * 1024 * 1024;
+    private static final ByteBuffer END_OF_LOG = ByteBuffer.allocate(0);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long startTime;
+    private final int recordsPerBuffer;
+    private final BlockingQueue<ByteBuffer> fullBuffers;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers;
+    private final List<Buffer> workerBuffers;
+    private final Map<String, Integer> errorSignatures;
+    private final AtomicInteger lastErrorSignatureId = new AtomicInteger();
+    private final Thread writerThread;
+    private volatile IOException writeException;
+
+    IterationLogWriter(Path file, String testName, long startTime, int threadCount) throws IOException {
+        this.file = file;
+        this.startTime = startTime;
+        Path directory = file.toAbsolutePath().getParent();
+        if(directory != null) Files.createDirectories(directory);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        recordsPerBuffer = Math.max(16, Math.min(1024, BUFFER_MEMORY_BUDGET / RECORD_SIZE / Math.max(1, threadCount)));
+        fullBuffers = new ArrayBlockingQueue<>(Math.max(16, threadCount));
+        freeBuffers = new ConcurrentLinkedQueue<>();
+        workerBuffers = new ArrayList<>();
+        errorSignatures = new ConcurrentHashMap<>();
+        writeHeader(testName);
+        writerThread = new Thread(this::writeFullBuffers, "paralleljunit-iteration-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void writeHeader(String testName) throws IOException {
+        byte[] name = testName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(4 + 2 + 2 + 8 + 2 + name.length);
+        header.putInt(MAGIC).putShort(VERSION).putShort(RECORD_SIZE)
+                .putLong(System.currentTimeMillis() - (System.nanoTime() - startTime) / 1_000_000)
+                .putShort((short) name.length).put(name);
+        header.flip();
+        write(header);
+    }
+
+    synchronized Buffer newBuffer(int workerIndex){
+        Buffer buffer = new Buffer(workerIndex);
+        workerBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * @return Id of the error signature of the throwable, assigned when the signature is first seen.
+     */
+    int errorSignature(Throwable throwable){
+        return errorSignatures.computeIfAbsent(ErrorSignature.describe(throwable), signature -> lastErrorSignatureId.incrementAndGet());
+    }
+
+    Path getFile(){
+        return file;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private void writeFullBuffers(){
+        while(true){
+            ByteBuffer buffer;
+            try {
+                buffer = fullBuffers.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if(buffer == END_OF_LOG) return;
+            try {
+                write(buffer);
+            } catch (IOException e) {
+                writeException = e;
+            }
+            buffer.clear();
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    private void enqueue(ByteBuffer buffer){
+        boolean interrupted = false;
+        while(true){
+            try {
+                fullBuffers.put(buffer);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Writes the records remaining in the worker buffers and the error signature dictionary, then closes the file.
+     * Called when all workers are finished.
+     */
+    synchronized void close() throws IOException {
+        for(Buffer workerBuffer : workerBuffers)
+            workerBuffer.flush();
+        enqueue(END_OF_LOG);
+        boolean interrupted = false;
+        while(writerThread.isAlive()){
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            ByteBuffer dictionary = ByteBuffer.allocate(RECORD_SIZE);
+            dictionary.putLong(0).putLong(errorSignatures.size()).putInt(0).putInt(0).put(OUTCOME_DICTIONARY).put((byte) 0).putShort((short) 0).putInt(0);
+            dictionary.flip();
+            write(dictionary);
+            for(Map.Entry<String, Integer> entry : errorSignatures.entrySet()){
+                byte[] signature = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                int length = Math.min(signature.length, Short.MAX_VALUE);
+                ByteBuffer signatureRecord = ByteBuffer.allocate(4 + 2 + length);
+                signatureRecord.putInt(entry.getValue()).putShort((short) length).put(signature, 0, length);
+                signatureRecord.flip();
+                write(signatureRecord);
+            }
+        } finally {
+            channel.close();
+            if(interrupted) Thread.currentThread().interrupt();
+        }
+        if(writeException != null) throw writeException;
+    }
+
+    /**
+     * Record buffer of one worker, used by the worker and by the completion of its asynchronous iterations.
+     */
+    class Buffer {
+
+        private final int workerIndex;
+        private ByteBuffer buffer;
+
+        private Buffer(int workerIndex){
+            this.workerIndex = workerIndex;
+            this.buffer = ByteBuffer.allocateDirect(RECORD_SIZE * recordsPerBuffer);
+        }
+
+        synchronized void append(long iterationStartTime, long durationNanos, byte outcome, int errorSignature){
+            buffer.putLong(iterationStartTime - startTime)
+                    .putLong(durationNanos)
+                    .putInt(workerIndex)
+                    .putInt((int) Thread.currentThread().getId())
+                    .put(outcome)
+                    .put((byte) 0)
+                    .putShort((short) 0)
+                    .putInt(errorSignature);
+            if(!buffer.hasRemaining()) flush();
+        }
+
+        private synchronized void flush(){
+            if(buffer.position() == 0) return;
+            buffer.flip();
+            enqueue(buffer);
+            ByteBuffer freeBuffer = freeBuffers.poll();
+            buffer = freeBuffer != null ? freeBuffer : ByteBuffer.allocateDirect(RECORD_SIZE * recordsPerBuffer);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.Locale;
+
+/**
+ * Summary of the latencies recorded for the iterations of one test method execution.
+ */
+class IterationStatistics {
+
+    private final LatencyHistogram histogram;
+    private final long elapsedNanos;
+
+    IterationStatistics(LatencyHistogram histogram, long elapsedNanos){
+        this.histogram = histogram;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getIterationCount(){
+        return histogram.getTotalCount();
+    }
+
+    long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    double getThroughputPerSecond(){
+        if(elapsedNanos <= 0) return 0;
+        return histogram.getTotalCount() * 1_000_000_000d / elapsedNanos;
+    }
+
+    long getValueAtPercentile(double percentile){
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    static String millis(double nanos){
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000d);
+    }
+
+    @Override
+    public String toString(){
+        return String.format(Locale.ROOT, "%d iterations in %s (%.1f iterations/s). ", getIterationCount(), millis(elapsedNanos), getThroughputPerSecond()) +
+                "Latency min " + millis(histogram.getMinNanos()) +
+                ", mean " + millis(histogram.getMeanNanos()) +
+                ", p50 " + millis(histogram.getValueAtPercentile(50)) +
+                ", p90 " + millis(histogram.getValueAtPercentile(90)) +
+                ", p99 " + millis(histogram.getValueAtPercentile(99)) +
+                ", p99.9 " + millis(histogram.getValueAtPercentile(99.9)) +
+                ", max " + millis(histogram.getMaxNanos()) + ".";
+    }
+}
@@ -0,0 +1,148 @@
+package com.zingtongroup.paralleljunit;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Java Flight Recorder implementation of {@link FlightRecorderSupport}. Only loaded when JFR is available.
+ */
+class JfrFlightRecorderSupport extends FlightRecorderSupport {
+
+    @Name("paralleljunit.Iteration")
+    @Label("Test Method Iteration")
+    @Category("ParallelJUnit")
+    @StackTrace(false)
+    static class IterationEvent extends Event {
+        @Label("Test Class")
+        String testClass;
+        @Label("Test Method")
+        String testMethod;
+        @Label("Thread Slot")
+        int threadSlot;
+        @Label("Outcome")
+        String outcome;
+    }
+
+    @Name("paralleljunit.Phase")
+    @Label("Test Phase")
+    @Category("ParallelJUnit")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Test Class")
+        String testClass;
+        @Label("Test Method")
+        String testMethod;
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("paralleljunit.RampUpStep")
+    @Label("Load Test Ramp-up Step")
+    @Category("ParallelJUnit")
+    @StackTrace(false)
+    static class RampUpStepEvent extends Event {
+        @Label("Test Class")
+        String testClass;
+        @Label("Test Method")
+        String testMethod;
+        @Label("Active Threads")
+        int activeThreads;
+    }
+
+    private static final EventType iterationEventType = EventType.getEventType(IterationEvent.class);
+
+    /**
+     * No event is created unless a recording has the iteration event enabled, so iterations allocate nothing otherwise.
+     */
+    @Override
+    Object beginIteration() {
+        if(!iterationEventType.isEnabled()) return null;
+        IterationEvent event = new IterationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endIteration(Object iteration, Method testMethod, int threadSlot, String outcome) {
+        if(iteration == null) return; //Not recorded, or failed before the test method was invoked.
+        IterationEvent event = (IterationEvent) iteration;
+        event.end();
+        if(!event.shouldCommit()) return;
+        event.testClass = testMethod.getDeclaringClass().getName();
+        event.testMethod = testMethod.getName();
+        event.threadSlot = threadSlot;
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    @Override
+    Object beginPhase() {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endPhase(Object phase, Method testMethod, String phaseName) {
+        PhaseEvent event = (PhaseEvent) phase;
+        event.end();
+        if(!event.shouldCommit()) return;
+        event.testClass = testMethod.getDeclaringClass().getName();
+        event.testMethod = testMethod.getName();
+        event.phase = phaseName;
+        event.commit();
+    }
+
+    @Override
+    void rampUpStep(Method testMethod, int activeThreadCount) {
+        RampUpStepEvent event = new RampUpStepEvent();
+        if(!event.shouldCommit()) return;
+        event.testClass = testMethod.getDeclaringClass().getName();
+        event.testMethod = testMethod.getName();
+        event.activeThreads = activeThreadCount;
+        event.commit();
+    }
+
+    @Override
+    FailureRecording startFailureRecording(Method testMethod, Path directory) {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (Exception e) {
+            recording = new Recording();
+        }
+        recording.setName("ParallelJUnit " + testMethod.getDeclaringClass().getSimpleName() + "." + testMethod.getName());
+        recording.enable(IterationEvent.class);
+        recording.enable(PhaseEvent.class);
+        recording.enable(RampUpStepEvent.class);
+        recording.setToDisk(true);
+        recording.start();
+        Recording startedRecording = recording;
+        return dump -> {
+            try {
+                startedRecording.stop();
+                if(!dump) return null;
+                Files.createDirectories(directory);
+                Path file = directory.resolve(testMethod.getDeclaringClass().getSimpleName() + "." + testMethod.getName() + "-" +
+                        new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+                startedRecording.dump(file);
+                return file.toAbsolutePath();
+            } finally {
+                startedRecording.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory latency histogram with nanosecond resolution.
+ * Values are stored in logarithmic buckets, each divided into 32 linear sub-buckets,
+ * giving a relative precision of about 3% over the full range of positive long values.
+ * Recording is lock-free and never allocates, so it can be used on the measured path.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount;
+    private final AtomicLong totalNanos;
+    private final AtomicLong minNanos;
+    private final AtomicLong maxNanos;
+
+    LatencyHistogram(){
+        counts = new AtomicLongArray(BUCKET_COUNT);
+        totalCount = new AtomicLong();
+        totalNanos = new AtomicLong();
+        minNanos = new AtomicLong(Long.MAX_VALUE);
+        maxNanos = new AtomicLong();
+    }
+
+    void record(long nanos){
+        if(nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long currentMin = minNanos.get();
+        while(nanos < currentMin && !minNanos.compareAndSet(currentMin, nanos))
+            currentMin = minNanos.get();
+        long currentMax = maxNanos.get();
+        while(nanos > currentMax && !maxNanos.compareAndSet(currentMax, nanos))
+            currentMax = maxNanos.get();
+    }
+
+    /**
+     * Adds all recorded values of the other histogram to this one.
+     */
+    void add(LatencyHistogram other){
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            long count = other.counts.get(i);
+            if(count != 0) counts.addAndGet(i, count);
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalNanos.addAndGet(other.totalNanos.get());
+        long otherMin = other.minNanos.get();
+        long currentMin = minNanos.get();
+        while(otherMin < currentMin && !minNanos.compareAndSet(currentMin, otherMin))
+            currentMin = minNanos.get();
+        long otherMax = other.maxNanos.get();
+        long currentMax = maxNanos.get();
+        while(otherMax > currentMax && !maxNanos.compareAndSet(currentMax, otherMax))
+            currentMax = maxNanos.get();
+    }
+
+    /**
+     * Returns a histogram of the values recorded in the later histogram since the earlier snapshot of it was taken.
+     * Min and max are the bounds of the lowest and highest non-empty buckets, within histogram precision.
+     */
+    static LatencyHistogram difference(LatencyHistogram later, LatencyHistogram earlier){
+        LatencyHistogram difference = new LatencyHistogram();
+        int lowestIndex = -1;
+        int highestIndex = -1;
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            long count = later.counts.get(i) - earlier.counts.get(i);
+            if(count <= 0) continue;
+            difference.counts.set(i, count);
+            if(lowestIndex < 0) lowestIndex = i;
+            highestIndex = i;
+        }
+        difference.totalCount.set(Math.max(0, later.totalCount.get() - earlier.totalCount.get()));
+        difference.totalNanos.set(Math.max(0, later.totalNanos.get() - earlier.totalNanos.get()));
+        if(lowestIndex >= 0){
+            difference.minNanos.set(Math.max(later.getMinNanos(), lowestIndex == 0 ? 0 : highestEquivalentValue(lowestIndex - 1) + 1));
+            difference.maxNanos.set(Math.min(later.getMaxNanos(), highestEquivalentValue(highestIndex)));
+        }
+        return difference;
+    }
+
+    long getTotalCount(){
+        return totalCount.get();
+    }
+
+    long getMinNanos(){
+        return getTotalCount() == 0 ? 0 : minNanos.get();
+    }
+
+    long getMaxNanos(){
+        return maxNanos.get();
+    }
+
+    double getMeanNanos(){
+        long count = getTotalCount();
+        return count == 0 ? 0 : (double) totalNanos.get() / count;
+    }
+
+    /**
+     * Returns the highest value that is equivalent (within histogram precision) to the value at the given percentile.
+     * @param percentile Percentile between 0 and 100.
+     */
+    long getValueAtPercentile(double percentile){
+        long count = getTotalCount();
+        if(count == 0) return 0;
+        long countAtPercentile = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count);
+        if(countAtPercentile < 1) countAtPercentile = 1;
+        long runningCount = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            runningCount += counts.get(i);
+            if(runningCount >= countAtPercentile)
+                return Math.min(highestEquivalentValue(i), getMaxNanos());
+        }
+        return getMaxNanos();
+    }
+
+    static int bucketIndex(long value){
+        if(value < 2 * SUB_BUCKET_HALF_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index){
+        if(index < 2 * SUB_BUCKET_HALF_COUNT) return index;
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        long highest = ((subBucket + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
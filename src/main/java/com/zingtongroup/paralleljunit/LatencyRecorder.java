@@ -0,0 +1,31 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Records iteration latencies from many concurrent threads into a fixed number of
+ * per-thread striped histograms, merged into one histogram when the result is read.
+ * Memory use is independent of the number of recording threads.
+ */
+class LatencyRecorder {
+
+    private final LatencyHistogram[] stripes;
+    private final int stripeMask;
+
+    LatencyRecorder(){
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        stripes = new LatencyHistogram[stripeCount];
+        for(int i = 0; i < stripeCount; i++)
+            stripes[i] = new LatencyHistogram();
+        stripeMask = stripeCount - 1;
+    }
+
+    void record(long nanos){
+        stripes[(int) Thread.currentThread().getId() & stripeMask].record(nanos);
+    }
+
+    LatencyHistogram getMergedHistogram(){
+        LatencyHistogram merged = new LatencyHistogram();
+        for(LatencyHistogram stripe : stripes)
+            merged.add(stripe);
+        return merged;
+    }
+}
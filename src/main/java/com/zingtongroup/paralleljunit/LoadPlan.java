@@ -0,0 +1,156 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start and stop time of each worker thread of a load test according to its LoadProfile, relative to the test start,
+ * and the plateaus of constant thread count. For a staircase the statistics of the plateaus give the knee, the
+ * highest load where the throughput still rose and the p99 latency stayed within the SLA, and with that the
+ * max sustainable throughput.
+ */
+class LoadPlan {
+
+    static final double MIN_THROUGHPUT_GROWTH = 0.05;
+
+    static class Plateau {
+        final long startOffsetNanos;
+        final long endOffsetNanos;
+        final int threadCount;
+        IterationStatistics statistics;
+        long failedIterations;
+
+        Plateau(long startOffsetNanos, long endOffsetNanos, int threadCount){
+            this.startOffsetNanos = startOffsetNanos;
+            this.endOffsetNanos = endOffsetNanos;
+            this.threadCount = threadCount;
+        }
+    }
+
+    private final LoadProfile profile;
+    private final long[] workerStartOffsets;
+    private final long[] workerStopOffsets;
+    private final List<Plateau> plateaus = new ArrayList<>();
+
+    LoadPlan(LoadProfile profile, int maxThreadCount, long totalDurationNanos, long rampUpNanos, int stepThreadCount, long stepDurationNanos){
+        this.profile = profile;
+        int threadCount = Math.max(1, maxThreadCount);
+        int step = Math.max(1, Math.min(stepThreadCount, threadCount));
+        workerStartOffsets = new long[threadCount];
+        workerStopOffsets = new long[threadCount];
+        switch (profile){
+            case STAIRCASE: {
+                int stepCount = (threadCount + step - 1) / step;
+                long stepDuration = stepDurationNanos > 0 ? stepDurationNanos : totalDurationNanos / stepCount;
+                for(int i = 0; i < threadCount; i++){
+                    workerStartOffsets[i] = Math.min(totalDurationNanos, i / step * stepDuration);
+                    workerStopOffsets[i] = totalDurationNanos;
+                }
+                for(int k = 0; k < stepCount && k * stepDuration < totalDurationNanos; k++){
+                    long end = k == stepCount - 1 ? totalDurationNanos : Math.min(totalDurationNanos, (k + 1) * stepDuration);
+                    plateaus.add(new Plateau(k * stepDuration, end, Math.min(threadCount, (k + 1) * step)));
+                }
+                break;
+            }
+            case SPIKE: {
+                long spikeDuration = stepDurationNanos > 0 ? Math.min(stepDurationNanos, totalDurationNanos / 2) : totalDurationNanos / 3;
+                long spikeStart = (totalDurationNanos - spikeDuration) / 2;
+                long spikeEnd = spikeStart + spikeDuration;
+                for(int i = 0; i < threadCount; i++){
+                    workerStartOffsets[i] = i < step ? 0 : spikeStart;
+                    workerStopOffsets[i] = i < step ? totalDurationNanos : spikeEnd;
+                }
+                plateaus.add(new Plateau(0, spikeStart, step));
+                plateaus.add(new Plateau(spikeStart, spikeEnd, threadCount));
+                plateaus.add(new Plateau(spikeEnd, totalDurationNanos, step));
+                break;
+            }
+            default: {
+                long delayBetweenThreadStarts = threadCount > 1 ? Math.max(0, rampUpNanos) / (threadCount - 1) : 0;
+                for(int i = 0; i < threadCount; i++){
+                    workerStartOffsets[i] = delayBetweenThreadStarts * i;
+                    workerStopOffsets[i] = totalDurationNanos;
+                }
+            }
+        }
+    }
+
+    static LoadPlan create(LoadTest loadTest){
+        return new LoadPlan(loadTest.loadProfile(),
+                loadTest.maxThreadCount(),
+                TimeUnit.MILLISECONDS.toNanos(loadTest.totalDurationInMilliseconds()),
+                TimeUnit.MILLISECONDS.toNanos(loadTest.rampUpTimeInMilliseconds()),
+                loadTest.stepThreadCount(),
+                TimeUnit.MILLISECONDS.toNanos(loadTest.stepDurationInMilliseconds()));
+    }
+
+    long getWorkerStartOffset(int workerIndex){
+        return workerStartOffsets[workerIndex];
+    }
+
+    long getWorkerStopOffset(int workerIndex){
+        return workerStopOffsets[workerIndex];
+    }
+
+    List<Plateau> getPlateaus(){
+        return plateaus;
+    }
+
+    /**
+     * The last staircase plateau before the throughput stopped rising by at least 5% or the p99 latency
+     * went above the SLA, or null if there is no measured staircase plateau within the SLA.
+     */
+    Plateau findKnee(double slaP99Millis){
+        if(profile != LoadProfile.STAIRCASE) return null;
+        Plateau knee = null;
+        for(Plateau plateau : plateaus){
+            if(plateau.statistics == null || plateau.statistics.getIterationCount() == 0) break;
+            if(slaP99Millis >= 0 && plateau.statistics.getValueAtPercentile(99) > slaP99Millis * 1_000_000d) break;
+            if(knee != null && plateau.statistics.getThroughputPerSecond() < knee.statistics.getThroughputPerSecond() * (1 + MIN_THROUGHPUT_GROWTH)) break;
+            knee = plateau;
+        }
+        return knee;
+    }
+
+    /**
+     * Why the load was not sustainable beyond the knee, or null if the knee is the last plateau.
+     */
+    String kneeReason(Plateau knee, double slaP99Millis){
+        int index = plateaus.indexOf(knee) + 1;
+        if(index <= 0 || index >= plateaus.size()) return null;
+        Plateau next = plateaus.get(index);
+        if(next.statistics == null || next.statistics.getIterationCount() == 0) return null;
+        if(slaP99Millis >= 0 && next.statistics.getValueAtPercentile(99) > slaP99Millis * 1_000_000d)
+            return "at " + next.threadCount + " threads the p99 latency " + IterationStatistics.millis(next.statistics.getValueAtPercentile(99)) + " exceeded the SLA of " + slaP99Millis + " ms";
+        return String.format(Locale.ROOT, "at %d threads the throughput only changed %+.1f%%", next.threadCount,
+                (next.statistics.getThroughputPerSecond() / knee.statistics.getThroughputPerSecond() - 1) * 100);
+    }
+
+    String report(double slaP99Millis){
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%8s %10s %14s %12s %12s %8s%n", "Threads", "From (s)", "Iterations/s", "p50 (ms)", "p99 (ms)", "Errors"));
+        for(Plateau plateau : plateaus){
+            if(plateau.statistics == null) continue;
+            report.append(String.format(Locale.ROOT, "%8d %10.1f %14.1f %12.3f %12.3f %8d%n",
+                    plateau.threadCount,
+                    plateau.startOffsetNanos / 1e9,
+                    plateau.statistics.getThroughputPerSecond(),
+                    plateau.statistics.getValueAtPercentile(50) / 1e6,
+                    plateau.statistics.getValueAtPercentile(99) / 1e6,
+                    plateau.failedIterations));
+        }
+        if(profile == LoadProfile.STAIRCASE){
+            Plateau knee = findKnee(slaP99Millis);
+            if(knee == null){
+                report.append("No plateau sustained the load within the SLA.");
+            } else {
+                String reason = kneeReason(knee, slaP99Millis);
+                report.append(String.format(Locale.ROOT, "Max sustainable throughput %.1f iterations/s at %d threads", knee.statistics.getThroughputPerSecond(), knee.threadCount));
+                report.append(reason == null ? ", no saturation point reached." : ", knee found since " + reason + ".");
+            }
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * How the number of active threads of a load test changes over the test duration.
+ */
+public enum LoadProfile {
+    /**
+     * Threads are started evenly over the rampUpTimeInMilliseconds, then all threads run until the test ends.
+     */
+    LINEAR,
+    /**
+     * Starts with stepThreadCount threads and adds stepThreadCount threads every stepDurationInMilliseconds
+     * until maxThreadCount threads run, then holds that load until the test ends. Each step is a plateau, and the
+     * throughput and latency of the plateaus are used to find the saturation point of the system under test.
+     */
+    STAIRCASE,
+    /**
+     * Runs stepThreadCount threads, then all maxThreadCount threads during stepDurationInMilliseconds, then
+     * stepThreadCount threads again until the test ends, showing how the system under test handles and
+     * recovers from a sudden burst of load.
+     */
+    SPIKE
+}
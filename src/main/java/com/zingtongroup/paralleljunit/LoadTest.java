@@ -9,21 +9,61 @@ import java.lang.annotation.Target;
 
 /**
  * Enables applying a load upon a system under test by enabling the same unit test method to be ran in concurrent parallel threads.
- * This test mechanism runs the test method in the given number of concurrent threads in a thread pool.
- * As soon a thread finishes a new one is started in the same thread pool slot.
+ * This test mechanism runs the test method in the given number of long-lived concurrent worker threads.
+ * As soon as an iteration finishes the worker starts the next one, until the test duration is over.
  * Options include forceful shutdown at test duration end, a ramp-up period for warm-up of the system,
  * and a halt-on-error option to save systems from overload damage upon problems.
+ * The latency of every iteration is recorded in a histogram, reported at test end and
+ * optionally asserted through the maxP50Millis, maxP99Millis and maxP999Millis percentile limits.
+ * With a targetIterationsPerSecond the test runs as an open workload model: iterations are issued at
+ * the target rate, limited by maxThreadCount, and latency is measured from the intended start time.
+ * With a progressReportIntervalInMilliseconds the throughput, errors and latency percentiles of each
+ * interval are printed while the test runs and passed to any progressListeners.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface LoadTest {
     int maxThreadCount() default 2;
     long rampUpTimeInMilliseconds() default 0;
+    LoadProfile loadProfile() default LoadProfile.LINEAR;
+    int stepThreadCount() default 1;
+    long stepDurationInMilliseconds() default 0;
+    double slaP99Millis() default -1;
+    double minSustainableThroughput() default -1;
     boolean preEmptiveTestClassInstantiationWithTestClassObjectReUsedBetweenIterations() default false;
+    TestInstanceScope testInstanceScope() default TestInstanceScope.PER_ITERATION;
+    int testInstancePoolSize() default 0;
+    int warmUpIterations() default 0;
+    int warmUpTimeInMilliseconds() default 0;
+    double warmUpUntilCoefficientOfVariation() default 0;
+    int maxWarmUpTimeInMilliseconds() default 60000;
+    long maxAllocatedBytesPerIteration() default -1;
+    double maxCpuMillisPerIteration() default -1;
+    String flightRecordingOnFailureDirectory() default "";
+    double failOnRegressionPercent() default -1;
+    String isolationGroup() default ConcurrentTestMethods.EXCLUSIVE;
+    double maxTotalGcPauseMillis() default -1;
+    double maxGcPauseFraction() default -1;
     long totalDurationInMilliseconds() default 3000;
     boolean haltOnError() default false;
     long maxExecutionTimeIndividualIteration() default -1;
+    double maxP50Millis() default -1;
+    double maxP99Millis() default -1;
+    double maxP999Millis() default -1;
+    int maxInFlight() default 1;
+    double targetIterationsPerSecond() default 0;
+    ArrivalDistribution arrivalDistribution() default ArrivalDistribution.FIXED;
+    ExecutionEngineType executionEngine() default ExecutionEngineType.DEFAULT;
+    String iterationLogFile() default "";
+    long progressReportIntervalInMilliseconds() default 0;
+    Class<? extends LoadTestProgressListener>[] progressListeners() default {};
+    long steadyStateStartInMilliseconds() default -1;
     boolean abruptTerminationAtTestEnd() default true;
+    long drainTimeoutInMilliseconds() default 30000;
+    String feederFile() default "";
+    FeederMode feederMode() default FeederMode.CIRCULAR;
+    int feederRecordSize() default 0;
+    boolean feederSkipHeader() default false;
     int timeout() default 30000;
     Class<? extends Throwable> expected() default Test.None.class;
 }
@@ -3,89 +3,145 @@ package com.zingtongroup.paralleljunit;
 import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.TestTimedOutException;
 
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashSet;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 class LoadTestMethodRunner extends CustomTestMethodRunnerBase {
     ExecutorService threadPool;
     LoadTest loadTestInstance;
-    public boolean isInterrupted;
-    Set<Object> testClassInstances;
+    volatile boolean isInterrupted;
+    volatile boolean isStopping;
+    volatile boolean feederExhausted;
+    long stopTime;
+    final LatencyRecorder latencyRecorder;
+    final ResourceUsageRecorder resourceUsageRecorder;
+    final GcPauseMonitor gcPauseMonitor;
+    final LongAdder failedIterations;
+    final LongAdder abortedIterations;
+    final LongAdder startedIterations;
+    final LongAdder finishedIterations;
+    final LongAdder activeWorkers;
+    final ProgressReporter progressReporter;
+    ArrivalScheduler arrivalScheduler;
+    IterationLogWriter iterationLog;
+    final TestInstanceProvider testInstanceProvider;
+    final LoadTestScenario scenario;
+    final LoadPlan loadPlan;
+    LoadTestPhases phases;
 
     LoadTestMethodRunner(RunNotifier notifier, Class<?> testClass, Method method) throws Exception {
         super(notifier, testClass, method);
-        testClassInstances = new HashSet<>();
+        latencyRecorder = new LatencyRecorder();
+        resourceUsageRecorder = new ResourceUsageRecorder();
+        gcPauseMonitor = new GcPauseMonitor();
+        failedIterations = new LongAdder();
+        abortedIterations = new LongAdder();
+        startedIterations = new LongAdder();
+        finishedIterations = new LongAdder();
+        activeWorkers = new LongAdder();
         loadTestInstance = method.getAnnotation(LoadTest.class);
         if(loadTestInstance == null) throw new Exception("Test method annotation is not @LoadTest.");
+        useFeeder(loadTestInstance.feederFile(), loadTestInstance.feederMode(), loadTestInstance.feederRecordSize(), loadTestInstance.feederSkipHeader());
+        progressReporter = ProgressReporter.create(this, loadTestInstance);
+        scenario = LoadTestScenario.create(testClass, method, testClassMetadata);
+        loadPlan = LoadPlan.create(loadTestInstance);
 
-        threadPool = Executors.newFixedThreadPool(loadTestInstance.maxThreadCount());
+        TestInstanceScope testInstanceScope = loadTestInstance.testInstanceScope();
+        if(loadTestInstance.preEmptiveTestClassInstantiationWithTestClassObjectReUsedBetweenIterations())
+            testInstanceScope = TestInstanceScope.PER_THREAD;
+        if(loadTestInstance.maxInFlight() > 1 && (testInstanceScope == TestInstanceScope.PER_THREAD || testInstanceScope == TestInstanceScope.SHARED))
+            throw new Exception("Test method " + method.getName() + ": maxInFlight > 1 requires testInstanceScope PER_ITERATION or POOLED, " +
+                    "since the iterations in flight of a thread would otherwise run Before and After methods on the same test class instance.");
+        testInstanceProvider = TestInstanceProvider.create(testInstanceScope, loadTestInstance.maxThreadCount(), loadTestInstance.testInstancePoolSize(), this);
+        threadPool = loadTestInstance.executionEngine().resolve().createExecutorService(loadTestInstance.maxThreadCount());
         System.out.println("Running test method " + method.getName() + " as load test.");
     }
 
-
+    /**
+     * With a ScenarioMix a method of the mix is picked instead of the annotated test method, e.g. for the warm-up.
+     */
+    @Override
+    Object invokeTestMethod(Object testClassInstance) throws InvocationTargetException, FeederExhaustedException {
+        if(scenario == null) return super.invokeTestMethod(testClassInstance);
+        return AsyncTestMethods.await(TestClassMetadata.invokeTestMethod(scenario.pick().handle, testClassInstance));
+    }
 
     synchronized void setInterrupted(){
         isInterrupted = true;
     }
 
-    void rampUpAndRun() {
-        //If no ramp-up
-        if (loadTestInstance.rampUpTimeInMilliseconds() <= 0 || loadTestInstance.maxThreadCount() < 2) {
-            for(int i = 0; i < loadTestInstance.maxThreadCount(); i++){
-                Object testClassInstance = null;
-                if(loadTestInstance.preEmptiveTestClassInstantiationWithTestClassObjectReUsedBetweenIterations())
-                    testClassInstance = createTestClassInstance();
-                startContinuousMethodExecutionThread(testClassInstance);
-            }
-            return;
-        }
-
-        //If ramp-up
-        long delayBetweenThreadStarts = loadTestInstance.rampUpTimeInMilliseconds() / (loadTestInstance.maxThreadCount() - 1);
-        Object testClassInstance = null;
-        if(loadTestInstance.preEmptiveTestClassInstantiationWithTestClassObjectReUsedBetweenIterations())
-            testClassInstance = createTestClassInstance();
-        this.startContinuousMethodExecutionThread(testClassInstance); //First execution thread start without delay;
-        Timer timer = new Timer("Test method execution thread delayed start timer");
-        for(int i = 0; i < loadTestInstance.maxThreadCount() - 1; i++){
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    Object testClassInstance = null;
-                    if(loadTestInstance.preEmptiveTestClassInstantiationWithTestClassObjectReUsedBetweenIterations())
-                        testClassInstance = createTestClassInstance();
-                    startContinuousMethodExecutionThread(testClassInstance);
-                }
-            }, delayBetweenThreadStarts * i);
+    void startWorkers(long startTime) {
+        int threadCount = loadTestInstance.maxThreadCount();
+        for(int i = 0; i < threadCount; i++){
+            IterationLogWriter.Buffer iterationLogBuffer = iterationLog == null ? null : iterationLog.newBuffer(i);
+            threadPool.execute(new LoadTestWorker(i, startTime + loadPlan.getWorkerStartOffset(i), startTime + loadPlan.getWorkerStopOffset(i), iterationLogBuffer));
         }
+        threadPool.shutdown();
     }
 
-    void shutdownThreads(){
-        if(!loadTestInstance.abruptTerminationAtTestEnd()){
+    /**
+     * Waits for the end of each plateau of the load profile and records the statistics of the plateau,
+     * as the difference between the latency histograms at the start and end of the plateau.
+     */
+    void awaitPlateaus(long startTime){
+        LatencyHistogram previousLatencies = new LatencyHistogram();
+        long previousFailedIterations = 0;
+        for(LoadPlan.Plateau plateau : loadPlan.getPlateaus()){
+            boolean terminated;
             try {
-                threadPool.awaitTermination(30, TimeUnit.SECONDS);
-                threadPool.shutdown();
+                terminated = threadPool.awaitTermination(startTime + plateau.endOffsetNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
             } catch (InterruptedException e) {
-                setInterrupted();
+                Thread.currentThread().interrupt();
+                return;
             }
-        } else {
-            threadPool.shutdownNow();
+            long plateauEnd = Math.min(System.nanoTime() - startTime, plateau.endOffsetNanos);
+            LatencyHistogram latencies = latencyRecorder.getMergedHistogram();
+            plateau.statistics = new IterationStatistics(LatencyHistogram.difference(latencies, previousLatencies), plateauEnd - plateau.startOffsetNanos);
+            plateau.failedIterations = failedIterations.sum() - previousFailedIterations;
+            previousLatencies = latencies;
+            previousFailedIterations = failedIterations.sum();
+            if(terminated) return;
         }
     }
 
-    void setShutdownTimer(){
-        new Timer("Load test method thread pool shutdown timer")
-                .schedule(new TimerTask() {
-            @Override
-            public void run() {
-                shutdownThreads();
+    void awaitTestEnd(){
+        try {
+            if(threadPool.awaitTermination(stopTime - System.nanoTime(), TimeUnit.NANOSECONDS)) return;
+            long inFlight = startedIterations.sum() - finishedIterations.sum();
+            if(!loadTestInstance.abruptTerminationAtTestEnd() && inFlight > 0)
+                System.out.println("Load test method " + method.getName() + ": Draining " + inFlight + " iterations in flight at the test end.");
+            if(loadTestInstance.abruptTerminationAtTestEnd()){
+                isStopping = true;
+                threadPool.shutdownNow();
+            } else if(!threadPool.awaitTermination(loadTestInstance.drainTimeoutInMilliseconds(), TimeUnit.MILLISECONDS)){
+                System.out.println("Load test method " + method.getName() + ": Interrupting " + (startedIterations.sum() - finishedIterations.sum()) + " iterations still in flight after the drain timeout of " + loadTestInstance.drainTimeoutInMilliseconds() + " ms.");
+                isStopping = true;
+                threadPool.shutdownNow();
             }
-        }, loadTestInstance.totalDurationInMilliseconds());
+            if(!threadPool.awaitTermination(loadTestInstance.timeout(), TimeUnit.MILLISECONDS))
+                notifier.fireTestFailure(new Failure(
+                        Description.createTestDescription(testClass, method.getName()),
+                        new TestTimedOutException(loadTestInstance.timeout(), TimeUnit.MILLISECONDS))
+                );
+        } catch (InterruptedException e) {
+            setInterrupted();
+            isStopping = true;
+            threadPool.shutdownNow();
+        }
     }
 
     @Override
@@ -93,59 +149,395 @@ class LoadTestMethodRunner extends CustomTestMethodRunnerBase {
         notifier.fireTestStarted(Description
                 .createTestDescription(testClass, method.getName()));
 
-        setShutdownTimer();
-        rampUpAndRun();
+        startFlightRecording(loadTestInstance.flightRecordingOnFailureDirectory());
+        testInstanceProvider.prepare();
+        new WarmUp(loadTestInstance.warmUpIterations(), loadTestInstance.warmUpTimeInMilliseconds(), loadTestInstance.warmUpUntilCoefficientOfVariation(), loadTestInstance.maxWarmUpTimeInMilliseconds())
+                .run(this, testInstanceProvider);
+        long startTime = System.nanoTime();
+        stopTime = startTime + TimeUnit.MILLISECONDS.toNanos(loadTestInstance.totalDurationInMilliseconds());
+        phases = LoadTestPhases.create(loadTestInstance, startTime);
+        if(loadTestInstance.targetIterationsPerSecond() > 0)
+            arrivalScheduler = new ArrivalScheduler(
+                    loadTestInstance.targetIterationsPerSecond(),
+                    loadTestInstance.arrivalDistribution(),
+                    startTime,
+                    TimeUnit.MILLISECONDS.toNanos(loadTestInstance.totalDurationInMilliseconds()));
+        openIterationLog(startTime);
+        gcPauseMonitor.start();
+        if(progressReporter != null) progressReporter.start(startTime);
+        Object measurementPhase = FlightRecorderSupport.get().beginPhase();
+        startWorkers(startTime);
+        awaitPlateaus(startTime);
+        awaitTestEnd();
+        long endTime = System.nanoTime();
+        FlightRecorderSupport.get().endPhase(measurementPhase, method, "measurement");
+        if(progressReporter != null) progressReporter.stop();
+        gcPauseMonitor.stop();
+        closeIterationLog();
+        reportStatistics(new IterationStatistics(latencyRecorder.getMergedHistogram(), endTime - startTime), endTime);
+        innerExceptionCheck();
+        stopFlightRecording();
 
         notifier.fireTestFinished(Description.createTestDescription(testClass, method.getName()));
     }
 
-    class MethodExecution implements Runnable{
+    void openIterationLog(long startTime){
+        if(loadTestInstance.iterationLogFile().isEmpty()) return;
+        try {
+            iterationLog = new IterationLogWriter(
+                    Paths.get(loadTestInstance.iterationLogFile()),
+                    testClass.getName() + "#" + method.getName(),
+                    startTime,
+                    loadTestInstance.maxThreadCount());
+        } catch (IOException e) {
+            errors.add(e);
+        }
+    }
+
+    void closeIterationLog(){
+        if(iterationLog == null) return;
+        try {
+            iterationLog.close();
+            System.out.println("Load test method " + method.getName() + ": Iteration log written to " + iterationLog.getFile().toAbsolutePath() + ".");
+        } catch (IOException e) {
+            errors.add(e);
+        }
+    }
+
+    /**
+     * Prints the statistics of the whole test and of each phase, and checks the steady state statistics against the limits.
+     * If no iteration finished within the steady state, the statistics of the whole test are checked instead.
+     */
+    void reportStatistics(IterationStatistics allStatistics, long endTime){
+        System.out.println("Load test method " + method.getName() + ": " + allStatistics);
+        System.out.println("Load test method " + method.getName() + " phases:" + System.lineSeparator() + phases.report(endTime));
+        IterationStatistics statistics = phases.getStatistics(LoadTestPhases.Phase.STEADY, endTime);
+        if(statistics.getIterationCount() == 0){
+            System.out.println("Load test method " + method.getName() + ": No iteration finished within the steady state, the limits are checked against all iterations.");
+            statistics = allStatistics;
+        }
+        if(failedIterations.sum() > 0 || abortedIterations.sum() > 0)
+            System.out.println("Load test method " + method.getName() + ": " + failedIterations.sum() + " iterations failed and " + abortedIterations.sum() + " iterations were aborted at test end.");
+        if(feederExhausted)
+            System.out.println("Load test method " + method.getName() + ": The workers stopped before the test end since all records of the feeder file were used.");
+        if(scenario != null) reportScenarioStatistics(allStatistics.getElapsedNanos());
+        if(!loadPlan.getPlateaus().isEmpty())
+            System.out.println("Load test method " + method.getName() + ", " + loadTestInstance.loadProfile() + " load profile plateaus:" + System.lineSeparator() + loadPlan.report(loadTestInstance.slaP99Millis()));
+        sustainableThroughputCheck(statistics);
+        if(arrivalScheduler != null)
+            System.out.println("Load test method " + method.getName() + ": " + arrivalScheduler);
+        latencyPercentileCheck(50, loadTestInstance.maxP50Millis(), statistics);
+        latencyPercentileCheck(99, loadTestInstance.maxP99Millis(), statistics);
+        latencyPercentileCheck(99.9, loadTestInstance.maxP999Millis(), statistics);
+        resourceUsageCheck(loadTestInstance.maxAllocatedBytesPerIteration(), loadTestInstance.maxCpuMillisPerIteration(), resourceUsageRecorder);
+        gcPauseCheck(loadTestInstance.maxTotalGcPauseMillis(), loadTestInstance.maxGcPauseFraction(), gcPauseMonitor);
+        if(statistics.getIterationCount() > 0)
+            baselineCheck(loadTestInstance.failOnRegressionPercent(), PerformanceBaseline.forTestMethod(method)
+                    .metric("iterationsPerSecond", statistics.getThroughputPerSecond(), true)
+                    .metric("p50Nanos", statistics.getValueAtPercentile(50), false)
+                    .metric("p99Nanos", statistics.getValueAtPercentile(99), false)
+                    .metric("allocatedBytesPerIteration", resourceUsageRecorder.getMeanAllocatedBytes(), false)
+                    .metric("cpuNanosPerIteration", resourceUsageRecorder.getMeanCpuTimeNanos(), false));
+    }
+
+    /**
+     * Checks the max sustainable throughput of a staircase load profile, or else the throughput of the whole test, against the floor.
+     */
+    void sustainableThroughputCheck(IterationStatistics statistics){
+        if(loadTestInstance.minSustainableThroughput() < 0) return;
+        double throughput = statistics.getThroughputPerSecond();
+        if(loadTestInstance.loadProfile() == LoadProfile.STAIRCASE){
+            LoadPlan.Plateau knee = loadPlan.findKnee(loadTestInstance.slaP99Millis());
+            throughput = knee == null ? 0 : knee.statistics.getThroughputPerSecond();
+        }
+        if(throughput < loadTestInstance.minSustainableThroughput())
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new ThroughputCheckFailedException(String.format(Locale.ROOT, "The max sustainable throughput was %.1f iterations/s while the expected min was %.1f iterations/s.", throughput, loadTestInstance.minSustainableThroughput()))
+                    )
+            );
+    }
+
+    void reportScenarioStatistics(long elapsedNanos){
+        for(LoadTestScenario.Step step : scenario.getSteps()){
+            System.out.println(String.format(Locale.ROOT, "Load test method %s, scenario method %s (weight %.1f%%): ", method.getName(), step.method.getName(), scenario.getWeightShare(step) * 100) +
+                    new IterationStatistics(step.latencyRecorder.getMergedHistogram(), elapsedNanos) +
+                    " " + step.failedIterations.sum() + " iterations failed.");
+        }
+    }
+
+    /**
+     * Long-lived worker running one thread slot of the load test. It waits for its ramp-up start time,
+     * then loops over Before methods, test method invocation and After methods until the test duration
+     * is over or the test is halted. Asynchronous iterations are awaited before the worker ends, unless the
+     * test is stopping, in which case they are cancelled and counted as aborted.
+     */
+    class LoadTestWorker implements Runnable {
 
-        private Object testClassInstance;
+        private final int workerIndex;
+        private final long workerStartTime;
+        private final long workerStopTime;
+        private final IterationLogWriter.Buffer iterationLogBuffer;
+        private final int maxInFlight;
+        private final Semaphore inFlightPermits;
+        private final Set<AsyncIteration> iterationsInFlight = ConcurrentHashMap.newKeySet();
+        private boolean completesAsynchronously;
 
-        MethodExecution(Object testClassInstance){
-            this.testClassInstance = testClassInstance;
-            isInterrupted = false;
+        LoadTestWorker(int workerIndex, long workerStartTime, long workerStopTime, IterationLogWriter.Buffer iterationLogBuffer){
+            this.workerIndex = workerIndex;
+            this.workerStartTime = workerStartTime;
+            this.workerStopTime = workerStopTime;
+            this.iterationLogBuffer = iterationLogBuffer;
+            this.maxInFlight = Math.max(1, loadTestInstance.maxInFlight());
+            this.inFlightPermits = new Semaphore(maxInFlight);
         }
 
         @Override
         public void run() {
-            if(isInterrupted)return;
-            boolean testClassInstanceIsLocal = (testClassInstance == null);
-            if(testClassInstanceIsLocal)
-                testClassInstance = createTestClassInstance();
+            long timeUntilStart;
+            while((timeUntilStart = workerStartTime - System.nanoTime()) > 0){
+                if(isInterrupted || Thread.currentThread().isInterrupted()) return;
+                LockSupport.parkNanos(timeUntilStart);
+            }
+            activeWorkers.increment();
+            FlightRecorderSupport.get().rampUpStep(method, activeWorkers.intValue());
+            try {
+                while(!isInterrupted && System.nanoTime() - workerStopTime < 0){
+                    if(!runIteration()) break;
+                }
+                awaitIterationsInFlight();
+            } finally {
+                activeWorkers.decrement();
+            }
+        }
+
+        /**
+         * @return False if the worker should stop.
+         */
+        boolean runIteration(){
+            try {
+                inFlightPermits.acquire();
+            } catch (InterruptedException e) {
+                return false;
+            }
+            completesAsynchronously = false;
             try {
-                runBeforeMethods(testClassInstance);
-                method.invoke(testClassInstance);
-                runAfterMethods(testClassInstance);
-                startContinuousMethodExecutionThread(testClassInstance);
+                return startIteration();
+            } finally {
+                if(!completesAsynchronously) inFlightPermits.release();
+            }
+        }
+
+        /**
+         * Runs an iteration. If the test method returns a CompletionStage the iteration is completed by the stage,
+         * and the worker goes on with the next iteration while up to maxInFlight iterations are incomplete.
+         * @return False if the worker should stop.
+         */
+        private boolean startIteration(){
+            long intendedStartTime = 0;
+            if(arrivalScheduler != null){
+                intendedStartTime = arrivalScheduler.claimNextIntendedStartTime();
+                if(!arrivalScheduler.isWithinTestDuration(intendedStartTime)) return false;
+            }
+            Object iterationTestClassInstance;
+            try {
+                iterationTestClassInstance = testInstanceProvider.acquire(workerIndex);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            if(iterationTestClassInstance == null) return false;
+            long startTime = System.nanoTime();
+            Object iterationEvent = null;
+            LoadTestScenario.Step scenarioStep = scenario == null ? null : scenario.pick();
+            Method iterationMethod = scenarioStep == null ? method : scenarioStep.method;
+            startedIterations.increment();
+            try {
+                runBeforeMethods(iterationTestClassInstance);
+                Object argument = scenarioStep == null ? nextTestMethodArgument() : null;
+                if(arrivalScheduler != null && !arrivalScheduler.awaitIntendedStartTime(intendedStartTime)){
+                    runAfterMethods(iterationTestClassInstance);
+                    return false;
+                }
+                iterationEvent = FlightRecorderSupport.get().beginIteration();
+                long allocatedBytesBefore = ResourceUsageRecorder.currentThreadAllocatedBytes();
+                long cpuTimeBefore = ResourceUsageRecorder.currentThreadCpuTime();
+                startTime = arrivalScheduler != null ? intendedStartTime : System.nanoTime();
+                Object result = TestClassMetadata.invokeTestMethod(scenarioStep == null ? testMethodHandle : scenarioStep.handle, iterationTestClassInstance, argument);
+                if(!(result instanceof CompletionStage)) AsyncTestMethods.await(result);
+                resourceUsageRecorder.record(allocatedBytesBefore, ResourceUsageRecorder.currentThreadAllocatedBytes(), cpuTimeBefore, ResourceUsageRecorder.currentThreadCpuTime());
+                if(result instanceof CompletionStage){
+                    completesAsynchronously = true;
+                    AsyncIteration iteration = new AsyncIteration((CompletionStage<?>) result, iterationTestClassInstance, startTime, iterationEvent, iterationMethod, scenarioStep);
+                    iterationsInFlight.add(iteration);
+                    iteration.stage.whenComplete((value, failure) -> completeIteration(iteration, failure));
+                    return true;
+                }
+                long iterationTime = recordSuccess(startTime, iterationEvent, iterationMethod, scenarioStep);
+                iterationEvent = null;
+                runAfterMethods(iterationTestClassInstance);
+                iterationDurationCheck(startTime, iterationTime);
             } catch (Exception e) {
-                innerExceptions.add(new TestMethodExecutionException(e));
-                if(loadTestInstance.haltOnError()) setInterrupted();
+                return recordFailure(e, startTime, iterationEvent, iterationMethod, scenarioStep);
+            } finally {
+                if(!completesAsynchronously){
+                    finishedIterations.increment();
+                    testInstanceProvider.release(iterationTestClassInstance);
+                }
             }
+            return true;
         }
-    }
 
-    void startContinuousMethodExecutionThread(Object testClassInstance)  {
-        if(isInterrupted)return;
-        MethodExecution methodExecution = new MethodExecution(testClassInstance);
-        Thread executionThread = new Thread(methodExecution);
-        try{
-            threadPool.submit(executionThread);
-        }catch (RejectedExecutionException e){
-            //Thread pool has been shut down due to timeout. Ignored.
-        }
-        long startTime = System.currentTimeMillis();
-        executionThread.start();
-        try {
-            executionThread.join();
-        } catch (InterruptedException e) {
-            setInterrupted();
-            return;
+        /**
+         * Completes an iteration when the CompletionStage returned by the test method completes, in the thread completing it.
+         * Iterations already aborted at the test end are left as they are.
+         */
+        private void completeIteration(AsyncIteration iteration, Throwable failure){
+            if(!iteration.settle()) return;
+            if(isStopping){
+                abortIteration(iteration);
+                return;
+            }
+            try {
+                if(failure != null){
+                    recordFailure(new InvocationTargetException(AsyncTestMethods.unwrap(failure)), iteration.startTime, iteration.event, iteration.method, iteration.scenarioStep);
+                    return;
+                }
+                long iterationTime = recordSuccess(iteration.startTime, iteration.event, iteration.method, iteration.scenarioStep);
+                runAfterMethods(iteration.testClassInstance);
+                iterationDurationCheck(iteration.startTime, iterationTime);
+            } catch (Exception e) {
+                recordFailure(e, iteration.startTime, null, iteration.method, iteration.scenarioStep);
+            } finally {
+                finishIteration(iteration);
+            }
+        }
+
+        /**
+         * Counts an asynchronous iteration still in flight at the test end as aborted, without running its After methods.
+         */
+        private void abortIteration(AsyncIteration iteration){
+            abortedIterations.increment();
+            FlightRecorderSupport.get().endIteration(iteration.event, iteration.method, workerIndex, FlightRecorderSupport.OUTCOME_ABORTED);
+            if(iterationLogBuffer != null)
+                iterationLogBuffer.append(iteration.startTime, System.nanoTime() - iteration.startTime, IterationLogWriter.OUTCOME_ABORTED, 0);
+            finishIteration(iteration);
         }
-        long iterationTime = System.currentTimeMillis() - startTime;
+
+        private void finishIteration(AsyncIteration iteration){
+            finishedIterations.increment();
+            testInstanceProvider.release(iteration.testClassInstance);
+            iterationsInFlight.remove(iteration);
+            inFlightPermits.release();
+        }
+
+        /**
+         * Cancels the asynchronous iterations of this worker that are still in flight, and counts them as aborted.
+         */
+        private void abortIterationsInFlight(){
+            for(AsyncIteration iteration : iterationsInFlight){
+                if(!iteration.settle()) continue;
+                try {
+                    iteration.stage.toCompletableFuture().cancel(true);
+                } catch (UnsupportedOperationException e) {
+                    //Stage that cannot be cancelled. Its completion is ignored since the iteration is settled.
+                }
+                abortIteration(iteration);
+            }
+        }
+
+        /**
+         * Waits for the asynchronous iterations of this worker that are still in flight. When the test is stopping they
+         * are aborted instead, and only completions already running are waited for, so that no iteration is recorded
+         * after the worker has ended.
+         */
+        private void awaitIterationsInFlight(){
+            if(isStopping) abortIterationsInFlight();
+            try {
+                inFlightPermits.acquire(maxInFlight);
+            } catch (InterruptedException e) {
+                abortIterationsInFlight();
+                inFlightPermits.acquireUninterruptibly(maxInFlight);
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return Iteration time.
+         */
+        private long recordSuccess(long startTime, Object iterationEvent, Method iterationMethod, LoadTestScenario.Step scenarioStep){
+            long iterationTime = System.nanoTime() - startTime;
+            FlightRecorderSupport.get().endIteration(iterationEvent, iterationMethod, workerIndex, FlightRecorderSupport.OUTCOME_SUCCESS);
+            latencyRecorder.record(iterationTime);
+            phases.record(startTime, iterationTime);
+            if(scenarioStep != null) scenarioStep.latencyRecorder.record(iterationTime);
+            if(iterationLogBuffer != null)
+                iterationLogBuffer.append(startTime, iterationTime, IterationLogWriter.OUTCOME_SUCCESS, 0);
+            return iterationTime;
+        }
+
+        /**
+         * @return False if the worker should stop.
+         */
+        private boolean recordFailure(Exception e, long startTime, Object iterationEvent, Method iterationMethod, LoadTestScenario.Step scenarioStep){
+            if(e instanceof FeederExhaustedException){
+                //A UNIQUE_ONCE feeder ends the test when its records are used up, without failing it.
+                feederExhausted = true;
+                FlightRecorderSupport.get().endIteration(iterationEvent, iterationMethod, workerIndex, FlightRecorderSupport.OUTCOME_ABORTED);
+                return false;
+            }
+            if(isStopping){
+                abortedIterations.increment();
+                FlightRecorderSupport.get().endIteration(iterationEvent, iterationMethod, workerIndex, FlightRecorderSupport.OUTCOME_ABORTED);
+                if(iterationLogBuffer != null)
+                    iterationLogBuffer.append(startTime, System.nanoTime() - startTime, IterationLogWriter.OUTCOME_ABORTED, 0);
+                return false;
+            }
+            failedIterations.increment();
+            phases.recordFailure(startTime, System.nanoTime());
+            FlightRecorderSupport.get().endIteration(iterationEvent, iterationMethod, workerIndex, FlightRecorderSupport.OUTCOME_FAILURE);
+            if(scenarioStep != null) scenarioStep.failedIterations.increment();
+            if(iterationLogBuffer != null)
+                iterationLogBuffer.append(startTime, System.nanoTime() - startTime, IterationLogWriter.OUTCOME_FAILURE, iterationLog.errorSignature(e));
+            errors.add(new TestMethodExecutionException(e));
+            if(loadTestInstance.haltOnError()) setInterrupted();
+            return true;
+        }
+
+        /**
+         * Iteration of an asynchronous test method, completed either by its CompletionStage or by the abort at the test end, whichever settles it first.
+         */
+        private class AsyncIteration {
+            final CompletionStage<?> stage;
+            final Object testClassInstance;
+            final long startTime;
+            final Object event;
+            final Method method;
+            final LoadTestScenario.Step scenarioStep;
+            private final AtomicBoolean settled = new AtomicBoolean();
+
+            AsyncIteration(CompletionStage<?> stage, Object testClassInstance, long startTime, Object event, Method method, LoadTestScenario.Step scenarioStep){
+                this.stage = stage;
+                this.testClassInstance = testClassInstance;
+                this.startTime = startTime;
+                this.event = event;
+                this.method = method;
+                this.scenarioStep = scenarioStep;
+            }
+
+            /**
+             * @return True for the one caller that completes or aborts the iteration.
+             */
+            boolean settle(){
+                return settled.compareAndSet(false, true);
+            }
+        }
+    }
+
+    void iterationDurationCheck(long iterationStartTime, long iterationTimeInNanoseconds){
         if(loadTestInstance.maxExecutionTimeIndividualIteration() > 0 &&
-                iterationTime > loadTestInstance.maxExecutionTimeIndividualIteration()){
+                iterationTimeInNanoseconds > TimeUnit.MILLISECONDS.toNanos(loadTestInstance.maxExecutionTimeIndividualIteration())){
+            gcPauseMonitor.recordSlowIteration(iterationStartTime, iterationTimeInNanoseconds);
             if(isInterrupted)return;
             if(loadTestInstance.haltOnError()) setInterrupted();
             notifier.fireTestFailure(
@@ -153,8 +545,8 @@ class LoadTestMethodRunner extends CustomTestMethodRunnerBase {
                             Description.createTestDescription(testClass, method.getName()),
                             new TestMethodExecutionDurationCheckFailedException(
                                     "Test method execution iteration took " +
-                                            iterationTime +
-                                            " ms while the maximum iteration time was " +
+                                            IterationStatistics.millis(iterationTimeInNanoseconds) +
+                                            " while the maximum iteration time was " +
                                             loadTestInstance.maxExecutionTimeIndividualIteration() +
                                             " ms.")
                     )
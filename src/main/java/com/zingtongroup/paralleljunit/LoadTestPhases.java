@@ -0,0 +1,104 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits the iterations of a load test into the warm-up, steady state and drain phases, each with its own statistics.
+ * Iterations started before the steady state start are warm-up, mostly the ramp-up of the threads. Iterations
+ * started later and finished by the test end are steady state, and iterations still in flight at the test end
+ * belong to the drain. Only the steady state statistics are used for the limits of the test.
+ */
+class LoadTestPhases {
+
+    enum Phase {
+        WARM_UP("warm-up"),
+        STEADY("steady state"),
+        DRAIN("drain");
+
+        final String description;
+
+        Phase(String description){
+            this.description = description;
+        }
+    }
+
+    private final long startTime;
+    private final long steadyStartTime;
+    private final long stopTime;
+    private final LatencyRecorder[] latencyRecorders;
+    private final LongAdder[] failedIterations;
+
+    /**
+     * @param steadyStartOffsetNanos Start of the steady state relative to the test start, at most the test duration.
+     */
+    LoadTestPhases(long startTime, long steadyStartOffsetNanos, long durationNanos){
+        this.startTime = startTime;
+        this.stopTime = startTime + durationNanos;
+        this.steadyStartTime = startTime + Math.max(0, Math.min(steadyStartOffsetNanos, durationNanos));
+        latencyRecorders = new LatencyRecorder[Phase.values().length];
+        failedIterations = new LongAdder[Phase.values().length];
+        for(int i = 0; i < latencyRecorders.length; i++){
+            latencyRecorders[i] = new LatencyRecorder();
+            failedIterations[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * The steady state starts at the end of the ramp-up of a linear load profile, unless given. The staircase
+     * and spike profiles change the load throughout the test, and are steady state from the start.
+     */
+    static LoadTestPhases create(LoadTest loadTest, long startTime){
+        long steadyStartMillis = loadTest.steadyStateStartInMilliseconds();
+        if(steadyStartMillis < 0)
+            steadyStartMillis = loadTest.loadProfile() == LoadProfile.LINEAR ? loadTest.rampUpTimeInMilliseconds() : 0;
+        return new LoadTestPhases(startTime, TimeUnit.MILLISECONDS.toNanos(steadyStartMillis), TimeUnit.MILLISECONDS.toNanos(loadTest.totalDurationInMilliseconds()));
+    }
+
+    Phase phaseOf(long iterationStartTime, long iterationEndTime){
+        if(iterationStartTime - steadyStartTime < 0) return Phase.WARM_UP;
+        if(iterationEndTime - stopTime > 0) return Phase.DRAIN;
+        return Phase.STEADY;
+    }
+
+    void record(long iterationStartTime, long iterationNanos){
+        latencyRecorders[phaseOf(iterationStartTime, iterationStartTime + iterationNanos).ordinal()].record(iterationNanos);
+    }
+
+    void recordFailure(long iterationStartTime, long iterationEndTime){
+        failedIterations[phaseOf(iterationStartTime, iterationEndTime).ordinal()].increment();
+    }
+
+    long getFailedIterations(Phase phase){
+        return failedIterations[phase.ordinal()].sum();
+    }
+
+    /**
+     * @param endTime Time all iterations had finished, the end of the drain.
+     */
+    IterationStatistics getStatistics(Phase phase, long endTime){
+        long elapsedNanos;
+        switch (phase){
+            case WARM_UP:
+                elapsedNanos = Math.min(endTime, steadyStartTime) - startTime;
+                break;
+            case STEADY:
+                elapsedNanos = Math.max(0, Math.min(endTime, stopTime) - steadyStartTime);
+                break;
+            default:
+                elapsedNanos = Math.max(0, endTime - stopTime);
+        }
+        return new IterationStatistics(latencyRecorders[phase.ordinal()].getMergedHistogram(), elapsedNanos);
+    }
+
+    String report(long endTime){
+        StringBuilder report = new StringBuilder();
+        for(Phase phase : Phase.values()){
+            IterationStatistics statistics = getStatistics(phase, endTime);
+            if(phase != Phase.STEADY && statistics.getIterationCount() == 0 && getFailedIterations(phase) == 0) continue;
+            if(report.length() > 0) report.append(System.lineSeparator());
+            report.append(phase.description).append(": ").append(statistics).append(" ").append(getFailedIterations(phase)).append(" iterations failed.");
+        }
+        return report.toString();
+    }
+}
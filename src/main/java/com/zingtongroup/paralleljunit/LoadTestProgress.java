@@ -0,0 +1,126 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.Locale;
+
+/**
+ * Snapshot of a running load test, passed to {@link LoadTestProgressListener}s at every progress report interval.
+ * Throughput, errors and latency percentiles are for the interval since the previous report, counts are totals.
+ */
+public class LoadTestProgress {
+
+    private final String testName;
+    private final long elapsedMilliseconds;
+    private final long intervalMilliseconds;
+    private final int activeThreadCount;
+    private final long inFlightIterationCount;
+    private final long totalIterationCount;
+    private final long totalErrorCount;
+    private final long intervalIterationCount;
+    private final long intervalErrorCount;
+    private final double p50Milliseconds;
+    private final double p90Milliseconds;
+    private final double p99Milliseconds;
+    private final double maxMilliseconds;
+    private final boolean throughputPlateau;
+
+    LoadTestProgress(String testName, long elapsedMilliseconds, long intervalMilliseconds, int activeThreadCount,
+                     long inFlightIterationCount, long totalIterationCount, long totalErrorCount,
+                     long intervalErrorCount, LatencyHistogram intervalLatencies, boolean throughputPlateau){
+        this.testName = testName;
+        this.elapsedMilliseconds = elapsedMilliseconds;
+        this.intervalMilliseconds = intervalMilliseconds;
+        this.activeThreadCount = activeThreadCount;
+        this.inFlightIterationCount = inFlightIterationCount;
+        this.totalIterationCount = totalIterationCount;
+        this.totalErrorCount = totalErrorCount;
+        this.intervalIterationCount = intervalLatencies.getTotalCount();
+        this.intervalErrorCount = intervalErrorCount;
+        this.p50Milliseconds = intervalLatencies.getValueAtPercentile(50) / 1_000_000d;
+        this.p90Milliseconds = intervalLatencies.getValueAtPercentile(90) / 1_000_000d;
+        this.p99Milliseconds = intervalLatencies.getValueAtPercentile(99) / 1_000_000d;
+        this.maxMilliseconds = intervalLatencies.getMaxNanos() / 1_000_000d;
+        this.throughputPlateau = throughputPlateau;
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public long getElapsedMilliseconds() {
+        return elapsedMilliseconds;
+    }
+
+    public long getIntervalMilliseconds() {
+        return intervalMilliseconds;
+    }
+
+    /**
+     * @return Number of worker threads started so far, growing during ramp-up.
+     */
+    public int getActiveThreadCount() {
+        return activeThreadCount;
+    }
+
+    public long getInFlightIterationCount() {
+        return inFlightIterationCount;
+    }
+
+    /**
+     * @return Successful iterations since the test started.
+     */
+    public long getTotalIterationCount() {
+        return totalIterationCount;
+    }
+
+    public long getTotalErrorCount() {
+        return totalErrorCount;
+    }
+
+    /**
+     * @return Successful iterations in the interval.
+     */
+    public long getIntervalIterationCount() {
+        return intervalIterationCount;
+    }
+
+    public long getIntervalErrorCount() {
+        return intervalErrorCount;
+    }
+
+    public double getIterationsPerSecond() {
+        return intervalMilliseconds <= 0 ? 0 : intervalIterationCount * 1000d / intervalMilliseconds;
+    }
+
+    public double getP50Milliseconds() {
+        return p50Milliseconds;
+    }
+
+    public double getP90Milliseconds() {
+        return p90Milliseconds;
+    }
+
+    public double getP99Milliseconds() {
+        return p99Milliseconds;
+    }
+
+    public double getMaxMilliseconds() {
+        return maxMilliseconds;
+    }
+
+    /**
+     * @return True for the first interval where more threads were active than in the previous interval
+     * without a corresponding growth in throughput, i.e. where the system under test stopped scaling during ramp-up.
+     */
+    public boolean isThroughputPlateau() {
+        return throughputPlateau;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s %7.1f s: %3d threads, %9.1f iterations/s, %3d in flight, %d errors (%d total), p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms.",
+                testName, elapsedMilliseconds / 1000d, activeThreadCount, getIterationsPerSecond(), inFlightIterationCount,
+                intervalErrorCount, totalErrorCount, p50Milliseconds, p90Milliseconds, p99Milliseconds, maxMilliseconds) +
+                (throughputPlateau ? " Throughput stopped growing with the added threads." : "");
+    }
+}
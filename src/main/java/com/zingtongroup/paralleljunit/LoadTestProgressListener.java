@@ -0,0 +1,11 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Receives the progress of a running load test at every progress report interval, e.g. to forward it to a dashboard.
+ * Implementations are given in the progressListeners argument of the {@link LoadTest} annotation and need a public
+ * no-argument constructor. They are called from a single reporter thread, never from the test method threads.
+ */
+public interface LoadTestProgressListener {
+
+    void onProgress(LoadTestProgress progress);
+}
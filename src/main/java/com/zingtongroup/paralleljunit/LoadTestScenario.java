@@ -0,0 +1,80 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The weighted test methods of a ScenarioMix, with latency and error counts per method.
+ */
+class LoadTestScenario {
+
+    static class Step {
+        final Method method;
+        final MethodHandle handle;
+        final int weight;
+        final LatencyRecorder latencyRecorder = new LatencyRecorder();
+        final LongAdder failedIterations = new LongAdder();
+
+        Step(Method method, MethodHandle handle, int weight){
+            this.method = method;
+            this.handle = handle;
+            this.weight = weight;
+        }
+    }
+
+    private final Step[] steps;
+    private final int[] cumulativeWeights;
+
+    private LoadTestScenario(Step[] steps){
+        this.steps = steps;
+        this.cumulativeWeights = new int[steps.length];
+        int total = 0;
+        for(int i = 0; i < steps.length; i++){
+            total += steps[i].weight;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * @return The scenario of the ScenarioMix annotation of the test method, or null if it has none.
+     */
+    static LoadTestScenario create(Class<?> testClass, Method testMethod, TestClassMetadata testClassMetadata) throws Exception {
+        ScenarioMix mix = testMethod.getAnnotation(ScenarioMix.class);
+        if(mix == null) return null;
+        if(mix.value().length == 0) throw new Exception("The ScenarioMix of test method " + testMethod.getName() + " lists no methods.");
+        Step[] steps = new Step[mix.value().length];
+        for(int i = 0; i < steps.length; i++){
+            ScenarioMethod scenarioMethod = mix.value()[i];
+            if(scenarioMethod.weight() <= 0)
+                throw new Exception("Scenario method " + scenarioMethod.name() + " of test method " + testMethod.getName() + " has weight " + scenarioMethod.weight() + ", but weights must be positive.");
+            Method method;
+            try {
+                method = testClass.getMethod(scenarioMethod.name());
+            } catch (NoSuchMethodException e) {
+                throw new Exception("Scenario method " + scenarioMethod.name() + " of test method " + testMethod.getName() + " is not a public no argument method of " + testClass.getName() + ".");
+            }
+            steps[i] = new Step(method, testClassMetadata.testMethodHandle(method), scenarioMethod.weight());
+        }
+        return new LoadTestScenario(steps);
+    }
+
+    Step[] getSteps(){
+        return steps;
+    }
+
+    /**
+     * Picks a method at random, with a probability proportional to its weight.
+     */
+    Step pick(){
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for(int i = 0; i < steps.length - 1; i++)
+            if(value < cumulativeWeights[i]) return steps[i];
+        return steps[steps.length - 1];
+    }
+
+    double getWeightShare(Step step){
+        return (double) step.weight / cumulativeWeights[cumulativeWeights.length - 1];
+    }
+}
@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when the test method threads spend more of their time blocked or waiting for locks than allowed.
+ */
+public class LockContentionCheckFailedException extends Exception {
+
+    public LockContentionCheckFailedException(String message){
+        super(message);
+    }
+
+}
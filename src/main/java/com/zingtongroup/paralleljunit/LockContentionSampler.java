@@ -0,0 +1,220 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Profiles the lock contention of the test method threads. The time each thread is blocked entering monitors is
+ * measured through thread contention monitoring. A sampler thread periodically takes the thread info of the test
+ * method threads, including the monitors and java.util.concurrent locks involved, and counts per lock how often
+ * threads were blocked on it or parked waiting for it while another thread owned it, together with the stack
+ * frames of the waiting and the owning threads. Time parked on owned java.util.concurrent locks is estimated from
+ * the samples, since it cannot be told apart from other waiting through the measured waited time.
+ */
+class LockContentionSampler implements Runnable {
+
+    static final long SAMPLE_INTERVAL_MILLISECONDS = 5;
+    private static final int REPORTED_LOCK_COUNT = 10;
+    private static final int OWNER_STACK_DEPTH = 8;
+
+    private static class LockStatistics {
+        final String lockName;
+        long blockedSamples;
+        long parkedSamples;
+        final Map<String, Long> waiterFrames = new HashMap<>();
+        final Map<String, Long> ownerFrames = new HashMap<>();
+
+        LockStatistics(String lockName){
+            this.lockName = lockName;
+        }
+
+        long getSamples(){
+            return blockedSamples + parkedSamples;
+        }
+    }
+
+    private static final Object contentionMonitoringLock = new Object();
+    private static int contentionMonitoringUsers;
+    private static boolean contentionMonitoringWasEnabled;
+
+    private final ThreadMXBean threadMXBean;
+    private final boolean contentionMonitoringSupported;
+    private final Map<Long, long[]> runningThreads = new ConcurrentHashMap<>();
+    private final LongAdder threadNanos = new LongAdder();
+    private final LongAdder blockedMillis = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+    private final Map<String, LockStatistics> locks = new HashMap<>();
+    private long threadSamples;
+    private long blockedSamples;
+    private long parkedSamples;
+    private ScheduledExecutorService sampler;
+
+    LockContentionSampler(){
+        threadMXBean = ManagementFactory.getThreadMXBean();
+        contentionMonitoringSupported = threadMXBean.isThreadContentionMonitoringSupported();
+    }
+
+    /**
+     * Thread contention monitoring is JVM wide, so it is enabled by the first running sampler and disabled again by the
+     * last one to stop, unless it was enabled before. Samplers of tests running at the same time thereby do not cut off each other.
+     */
+    void start(){
+        if(contentionMonitoringSupported){
+            synchronized (contentionMonitoringLock){
+                if(contentionMonitoringUsers++ == 0){
+                    contentionMonitoringWasEnabled = threadMXBean.isThreadContentionMonitoringEnabled();
+                    threadMXBean.setThreadContentionMonitoringEnabled(true);
+                }
+            }
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "paralleljunit-lock-contention-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this, SAMPLE_INTERVAL_MILLISECONDS, SAMPLE_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    void stop(){
+        if(sampler == null) return;
+        sampler.shutdownNow();
+        try {
+            sampler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sampler = null;
+        if(contentionMonitoringSupported){
+            synchronized (contentionMonitoringLock){
+                if(--contentionMonitoringUsers == 0 && !contentionMonitoringWasEnabled)
+                    threadMXBean.setThreadContentionMonitoringEnabled(false);
+            }
+        }
+    }
+
+    /**
+     * Called by a test method thread right before the test method is invoked.
+     */
+    void threadStarted(){
+        ThreadInfo info = threadMXBean.getThreadInfo(Thread.currentThread().getId());
+        runningThreads.put(Thread.currentThread().getId(), new long[]{System.nanoTime(), info == null ? 0 : info.getBlockedTime(), info == null ? 0 : info.getBlockedCount()});
+    }
+
+    /**
+     * Called by a test method thread right after the test method has returned or thrown.
+     */
+    void threadFinished(){
+        long[] started = runningThreads.remove(Thread.currentThread().getId());
+        if(started == null) return;
+        threadNanos.add(System.nanoTime() - started[0]);
+        ThreadInfo info = threadMXBean.getThreadInfo(Thread.currentThread().getId());
+        if(info == null) return;
+        if(info.getBlockedTime() >= 0) blockedMillis.add(info.getBlockedTime() - started[1]);
+        blockedCount.add(info.getBlockedCount() - started[2]);
+    }
+
+    @Override
+    public void run() {
+        long[] threadIds = new long[runningThreads.size()];
+        int index = 0;
+        for(Long threadId : runningThreads.keySet()){
+            if(index == threadIds.length) break;
+            threadIds[index++] = threadId;
+        }
+        if(index == 0) return;
+        if(index < threadIds.length) threadIds = Arrays.copyOf(threadIds, index);
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(threadIds, threadMXBean.isObjectMonitorUsageSupported(), threadMXBean.isSynchronizerUsageSupported());
+        Map<Long, ThreadInfo> infosById = new HashMap<>();
+        for(ThreadInfo info : infos)
+            if(info != null) infosById.put(info.getThreadId(), info);
+        for(ThreadInfo info : infosById.values()){
+            threadSamples++;
+            LockInfo lock = info.getLockInfo();
+            if(lock == null || info.getLockOwnerId() < 0) continue;
+            boolean blocked = info.getThreadState() == Thread.State.BLOCKED;
+            if(!blocked && !(info.getThreadState() == Thread.State.WAITING || info.getThreadState() == Thread.State.TIMED_WAITING)) continue;
+            String lockName = lock.getClassName() + "@" + Integer.toHexString(lock.getIdentityHashCode());
+            LockStatistics statistics = locks.computeIfAbsent(lockName, LockStatistics::new);
+            if(blocked){
+                statistics.blockedSamples++;
+                blockedSamples++;
+            } else {
+                statistics.parkedSamples++;
+                parkedSamples++;
+            }
+            statistics.waiterFrames.merge(applicationFrame(info.getStackTrace()), 1L, Long::sum);
+            ThreadInfo owner = infosById.get(info.getLockOwnerId());
+            if(owner == null) owner = threadMXBean.getThreadInfo(info.getLockOwnerId(), OWNER_STACK_DEPTH);
+            if(owner != null)
+                statistics.ownerFrames.merge(applicationFrame(owner.getStackTrace()), 1L, Long::sum);
+        }
+    }
+
+    /**
+     * The topmost stack frame outside of the JDK, which is where the tested code takes the lock.
+     */
+    static String applicationFrame(StackTraceElement[] stackTrace){
+        for(StackTraceElement frame : stackTrace){
+            String className = frame.getClassName();
+            if(!className.startsWith("java.") && !className.startsWith("javax.") && !className.startsWith("jdk.") && !className.startsWith("sun."))
+                return frame.toString();
+        }
+        return stackTrace.length == 0 ? "unknown frame" : stackTrace[0].toString();
+    }
+
+    /**
+     * Time the test method threads were blocked on monitors or parked on owned locks, relative to their total execution time.
+     */
+    double getBlockedTimeRatio(){
+        long totalThreadNanos = threadNanos.sum();
+        if(totalThreadNanos <= 0) return 0;
+        long blockedNanos = contentionMonitoringSupported ?
+                TimeUnit.MILLISECONDS.toNanos(blockedMillis.sum()) :
+                TimeUnit.MILLISECONDS.toNanos(blockedSamples * SAMPLE_INTERVAL_MILLISECONDS);
+        blockedNanos += TimeUnit.MILLISECONDS.toNanos(parkedSamples * SAMPLE_INTERVAL_MILLISECONDS);
+        return Math.min(1, (double) blockedNanos / totalThreadNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "Lock contention: blocked or waiting for locks %.1f%% of the thread time, %d monitor blocks, %d thread samples.",
+                getBlockedTimeRatio() * 100, blockedCount.sum(), threadSamples));
+        List<LockStatistics> ranked = new ArrayList<>(locks.values());
+        ranked.sort((a, b) -> Long.compare(b.getSamples(), a.getSamples()));
+        if(ranked.isEmpty()) return report.append(" No contended locks sampled.").toString();
+        report.append(System.lineSeparator()).append(String.format(Locale.ROOT, "%8s %8s  %s", "Blocked", "Parked", "Lock, waiting thread and owner thread frames"));
+        for(LockStatistics lock : ranked.subList(0, Math.min(REPORTED_LOCK_COUNT, ranked.size()))){
+            report.append(System.lineSeparator()).append(String.format(Locale.ROOT, "%8d %8d  %s", lock.blockedSamples, lock.parkedSamples, lock.lockName));
+            report.append(System.lineSeparator()).append("                    waiting at ").append(mostFrequent(lock.waiterFrames));
+            if(!lock.ownerFrames.isEmpty())
+                report.append(System.lineSeparator()).append("                    owner at   ").append(mostFrequent(lock.ownerFrames));
+        }
+        return report.toString();
+    }
+
+    private static String mostFrequent(Map<String, Long> counts){
+        String mostFrequent = null;
+        long highest = 0;
+        for(Map.Entry<String, Long> entry : counts.entrySet()){
+            if(entry.getValue() > highest){
+                highest = entry.getValue();
+                mostFrequent = entry.getKey();
+            }
+        }
+        return mostFrequent;
+    }
+}
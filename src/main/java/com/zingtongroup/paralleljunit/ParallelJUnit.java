@@ -29,37 +29,89 @@ public class ParallelJUnit extends Runner {
     @Override
     public void run(RunNotifier notifier) {
         try {
-            for (Method method : testClass.getMethods()) {
-                if(method.isAnnotationPresent(ParallelTest.class)){
-                    new ParallelTestRunner(notifier, testClass, method).run();
-                }
+            ConcurrentTestMethods concurrentTestMethods = testClass.getAnnotation(ConcurrentTestMethods.class);
+            if(concurrentTestMethods == null){
+                for (Method method : testClass.getMethods())
+                    runTestMethod(notifier, method);
+                return;
+            }
+            TestMethodScheduler scheduler = new TestMethodScheduler(concurrentTestMethods.threadBudget());
+            for (Method method : testClass.getMethods()){
+                if(!isTestMethod(method)) continue;
+                scheduler.add(method.getName(), threadDemand(method), isolationGroup(method), () -> runTestMethod(notifier, method));
+            }
+            scheduler.run();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                if(method.isAnnotationPresent(ParallelizationTest.class)){
-                    new ParallelizationTestRunner(notifier, testClass, method).run();
-                }
+    private static boolean isTestMethod(Method method){
+        return method.isAnnotationPresent(ParallelTest.class) ||
+                method.isAnnotationPresent(ParallelizationTest.class) ||
+                method.isAnnotationPresent(LoadTest.class) ||
+                method.isAnnotationPresent(Test.class);
+    }
+
+    /**
+     * Number of threads the test method occupies while running, when test methods run concurrently.
+     */
+    static int threadDemand(Method method){
+        if(method.isAnnotationPresent(ParallelTest.class)) return method.getAnnotation(ParallelTest.class).threadCount();
+        if(method.isAnnotationPresent(ParallelizationTest.class)) return method.getAnnotation(ParallelizationTest.class).multipleThreadsCount();
+        if(method.isAnnotationPresent(LoadTest.class)) return method.getAnnotation(LoadTest.class).maxThreadCount();
+        return 1;
+    }
 
-                if(method.isAnnotationPresent(LoadTest.class)){
-                    new LoadTestMethodRunner(notifier, testClass, method).run();
-                }
+    /**
+     * A ParallelTest without an isolation group of its own runs alone when it asserts timing, GC pauses or a
+     * regression against its baseline, since concurrently running test methods would disturb those.
+     */
+    static String isolationGroup(Method method){
+        if(method.isAnnotationPresent(ParallelTest.class)){
+            ParallelTest parallelTest = method.getAnnotation(ParallelTest.class);
+            if(parallelTest.isolationGroup().isEmpty() && isTimingSensitive(parallelTest)) return ConcurrentTestMethods.EXCLUSIVE;
+            return parallelTest.isolationGroup();
+        }
+        if(method.isAnnotationPresent(ParallelizationTest.class)) return method.getAnnotation(ParallelizationTest.class).isolationGroup();
+        if(method.isAnnotationPresent(LoadTest.class)) return method.getAnnotation(LoadTest.class).isolationGroup();
+        return "";
+    }
 
-                if (method.isAnnotationPresent(Test.class)) {
-                    Test test = method.getAnnotation(Test.class);
-                    Class<? extends Throwable> expectedException = test.expected();
-                    Object testObject = testClass.getDeclaredConstructor().newInstance();
-                    notifier.fireTestStarted(Description
-                            .createTestDescription(testClass, method.getName()));
-                    try{
-                        method.invoke(testObject);
-                    }catch (Exception e){
-                        if(!e.getClass().equals(expectedException))
-                            notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), new TestMethodExecutionException(e)));
-                    }
-                    notifier.fireTestFinished(Description
-                            .createTestDescription(testClass, method.getName()));
-                }
+    private static boolean isTimingSensitive(ParallelTest parallelTest){
+        return parallelTest.timeout() != 0 ||
+                parallelTest.maxTotalGcPauseMillis() >= 0 ||
+                parallelTest.maxGcPauseFraction() >= 0 ||
+                parallelTest.failOnRegressionPercent() >= 0;
+    }
+
+    private void runTestMethod(RunNotifier notifier, Method method) throws Exception {
+        if(method.isAnnotationPresent(ParallelTest.class)){
+            new ParallelTestRunner(notifier, testClass, method).run();
+        }
+
+        if(method.isAnnotationPresent(ParallelizationTest.class)){
+            new ParallelizationTestRunner(notifier, testClass, method).run();
+        }
+
+        if(method.isAnnotationPresent(LoadTest.class)){
+            new LoadTestMethodRunner(notifier, testClass, method).run();
+        }
+
+        if (method.isAnnotationPresent(Test.class)) {
+            Test test = method.getAnnotation(Test.class);
+            Class<? extends Throwable> expectedException = test.expected();
+            Object testObject = testClass.getDeclaredConstructor().newInstance();
+            notifier.fireTestStarted(Description
+                    .createTestDescription(testClass, method.getName()));
+            try{
+                method.invoke(testObject);
+            }catch (Exception e){
+                if(!e.getClass().equals(expectedException))
+                    notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), new TestMethodExecutionException(e)));
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            notifier.fireTestFinished(Description
+                    .createTestDescription(testClass, method.getName()));
         }
     }
-}
\ No newline at end of file
+}
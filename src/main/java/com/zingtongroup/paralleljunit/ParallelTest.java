@@ -17,5 +17,26 @@ import java.lang.annotation.Target;
 public @interface ParallelTest {
     int threadCount() default 2;
     int timeout() default 0;
+    ExecutionEngineType executionEngine() default ExecutionEngineType.DEFAULT;
+    TestInstanceScope testInstanceScope() default TestInstanceScope.PER_THREAD;
+    int testInstancePoolSize() default 0;
+    int warmUpIterations() default 0;
+    int warmUpTimeInMilliseconds() default 0;
+    double warmUpUntilCoefficientOfVariation() default 0;
+    int maxWarmUpTimeInMilliseconds() default 60000;
+    long maxAllocatedBytesPerIteration() default -1;
+    double maxCpuMillisPerIteration() default -1;
+    String flightRecordingOnFailureDirectory() default "";
+    double failOnRegressionPercent() default -1;
+    String isolationGroup() default "";
+    double maxTotalGcPauseMillis() default -1;
+    double maxGcPauseFraction() default -1;
+    boolean profileLockContention() default false;
+    double maxBlockedTimeRatio() default -1;
+    boolean synchronizedStart() default false;
+    String feederFile() default "";
+    FeederMode feederMode() default FeederMode.CIRCULAR;
+    int feederRecordSize() default 0;
+    boolean feederSkipHeader() default false;
     Class<? extends Throwable> expected() default Test.None.class;
 }
\ No newline at end of file
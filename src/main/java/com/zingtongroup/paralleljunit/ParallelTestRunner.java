@@ -3,15 +3,12 @@ package com.zingtongroup.paralleljunit;
 import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
-import org.junit.runners.model.TestTimedOutException;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 class ParallelTestRunner extends CustomTestMethodRunnerBase {
@@ -20,16 +17,24 @@ class ParallelTestRunner extends CustomTestMethodRunnerBase {
     ExecutorService testThreadPool;
     int maxMilliseconds;
     List<TestMethodExecutor> testMethods;
-    List<Object> testClassObjects;
+    TestInstanceProvider testInstanceProvider;
+    StartGate startGate;
+    WarmUp warmUp;
+    ParallelTest parallelTest;
+    ResourceUsageRecorder resourceUsageRecorder;
+    GcPauseMonitor gcPauseMonitor;
+    LockContentionSampler lockContentionSampler;
     long startTime;
+    long endTime;
 
     ParallelTestRunner(RunNotifier notifier, Class<?> testClass, Method method) throws Exception {
         super(notifier, testClass, method);
         notifier.fireTestStarted(Description
                 .createTestDescription(testClass, method.getName()));
-        ParallelTest parallelTest = method.getAnnotation(ParallelTest.class);
+        parallelTest = method.getAnnotation(ParallelTest.class);
         if(parallelTest == null) throw new Exception("Test method annotation is not @Perf.");
 
+        useFeeder(parallelTest.feederFile(), parallelTest.feederMode(), parallelTest.feederRecordSize(), parallelTest.feederSkipHeader());
         this.threadCount = parallelTest.threadCount();
         this.maxMilliseconds = parallelTest.timeout();
 
@@ -38,70 +43,105 @@ class ParallelTestRunner extends CustomTestMethodRunnerBase {
             timeoutMessage = " and a maximum expected test duration of " + maxMilliseconds + " ms";
         System.out.println("Running test method " + method.getName() + " in " + threadCount + " parallel threads" + timeoutMessage + ".");
 
-        testClassObjects = new ArrayList<>();
-        testThreadPool = Executors.newFixedThreadPool(threadCount);
+        testInstanceProvider = TestInstanceProvider.create(perThreadScope(parallelTest.testInstanceScope()), threadCount, parallelTest.testInstancePoolSize(), this);
+        warmUp = new WarmUp(parallelTest.warmUpIterations(), parallelTest.warmUpTimeInMilliseconds(), parallelTest.warmUpUntilCoefficientOfVariation(), parallelTest.maxWarmUpTimeInMilliseconds());
+        startGate = useStartGate(parallelTest.synchronizedStart(), threadCount, testInstanceProvider) ? new StartGate(threadCount) : null;
+        testThreadPool = parallelTest.executionEngine().resolve().createExecutorService(threadCount);
         testMethods = new ArrayList<>();
+        resourceUsageRecorder = new ResourceUsageRecorder();
+        gcPauseMonitor = new GcPauseMonitor();
+        if(parallelTest.profileLockContention() || parallelTest.maxBlockedTimeRatio() >= 0)
+            lockContentionSampler = new LockContentionSampler();
     }
 
     @Override
     void run(){
+        startFlightRecording(parallelTest.flightRecordingOnFailureDirectory());
         instantiateTestClass();
+        warmUp.run(this, testInstanceProvider);
         executeTest();
         testExecutionCleanup();
     }
 
     void instantiateTestClass() {
-        for(int i = 0; i < threadCount; i++){
-            testClassObjects.add(createTestClassInstance());
-        }
+        testInstanceProvider.prepare();
     }
 
     void executeTest() {
-        for(int i=0; i<threadCount; i++)
-            testMethods.add(new TestMethodExecutor(testClassObjects.get(i), method));
+        for(int i=0; i<threadCount; i++){
+            TestMethodExecutor testMethod = new TestMethodExecutor(testInstanceProvider, i, method, testMethodHandle, startGate, resourceUsageRecorder);
+            testMethod.lockContentionSampler = lockContentionSampler;
+            testMethod.feeder = feeder;
+            testMethods.add(testMethod);
+        }
 
-        startTime = System.currentTimeMillis();
+        Object measurementPhase = FlightRecorderSupport.get().beginPhase();
+        gcPauseMonitor.start();
+        if(lockContentionSampler != null) lockContentionSampler.start();
+        startTime = System.nanoTime();
 
         for (TestMethodExecutor testMethod : testMethods) {
             try {
                 testThreadPool.execute(testMethod);
             } catch (Exception e) {
-                Class<? extends Throwable> expectedException = null;
-                for (Annotation a : method.getAnnotations()) {
-                    Object annotationObject = method.getAnnotation(a.getClass());
-                    try {
-                        Method m = annotationObject.getClass().getMethod("expected", annotationObject.getClass());
-                        expectedException = (Class<? extends Throwable>) m.invoke(annotationObject, new Object[]{null});
-                    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException noSuchMethodException) {
-                        //Ignored
-                    }
-                }
-                if (!e.getClass().equals(expectedException))
-                    innerExceptions.add(new TestMethodExecutionException(e));
+                errors.add(new TestMethodExecutionException(e));
             }
         }
 
         testThreadPool.shutdown();
+        openStartGate();
         threadsTimeoutCheck();
+        endTime = System.nanoTime();
+        gcPauseMonitor.stop();
+        if(lockContentionSampler != null) lockContentionSampler.stop();
+        FlightRecorderSupport.get().endPhase(measurementPhase, method, "measurement");
     }
 
-    void threadsTimeoutCheck(){
+    void openStartGate(){
+        if(startGate == null) return;
         try {
-            if(!testThreadPool.awaitTermination(1, TimeUnit.MINUTES)){
-                notifier.fireTestFailure(new Failure(
-                        Description.createTestDescription(testClass, method.getName()),
-                        new TestTimedOutException(System.currentTimeMillis() - startTime, TimeUnit.MILLISECONDS))
-                );
-            }
+            if(!startGate.awaitArrivalsAndOpen())
+                System.out.println("Not all threads of test method " + method.getName() + " were started by the execution engine in time for the start gate.");
+            startTime = startGate.getReleaseTime();
         } catch (InterruptedException e) {
-            innerExceptions.add(e);
+            errors.add(e);
         }
     }
 
+    void threadsTimeoutCheck(){
+        awaitTestMethodThreads(testThreadPool, testMethods, TimeUnit.MILLISECONDS.toNanos(maxMilliseconds), startTime);
+    }
+
+    void lockContentionCheck(){
+        System.out.println("Test method " + method.getName() + ": " + lockContentionSampler);
+        double blockedTimeRatio = lockContentionSampler.getBlockedTimeRatio();
+        if(parallelTest.maxBlockedTimeRatio() >= 0 && blockedTimeRatio > parallelTest.maxBlockedTimeRatio())
+            notifier.fireTestFailure(
+                    new Failure(
+                            Description.createTestDescription(testClass, method.getName()),
+                            new LockContentionCheckFailedException(String.format(Locale.ROOT, "The test method threads were blocked or waiting for locks %.3f of the time while the expected max was %.3f.", blockedTimeRatio, parallelTest.maxBlockedTimeRatio()))
+                    )
+            );
+    }
+
     void testExecutionCleanup() {
+        if(startGate != null)
+            System.out.println(startGate.startSpreadReport());
+        gcPauseCheck(parallelTest.maxTotalGcPauseMillis(), parallelTest.maxGcPauseFraction(), gcPauseMonitor);
+        if(lockContentionSampler != null)
+            lockContentionCheck();
         if(maxMilliseconds != 0)
-            testDurationCheck(maxMilliseconds, System.currentTimeMillis() - startTime);
+            testDurationCheck(maxMilliseconds, endTime - startTime);
+        resourceUsageCheck(parallelTest.maxAllocatedBytesPerIteration(), parallelTest.maxCpuMillisPerIteration(), resourceUsageRecorder);
+        baselineCheck(parallelTest.failOnRegressionPercent(), PerformanceBaseline.forTestMethod(method)
+                .metric("durationNanos", endTime - startTime, false)
+                .metric("allocatedBytesPerIteration", resourceUsageRecorder.getMeanAllocatedBytes(), false)
+                .metric("cpuNanosPerIteration", resourceUsageRecorder.getMeanCpuTimeNanos(), false));
+        for(TestMethodExecutor testMethod : testMethods)
+            if(testMethod.innerException != null)
+                errors.add(new TestMethodExecutionException(testMethod.innerException));
         innerExceptionCheck();
+        stopFlightRecording();
         notifier.fireTestFinished(Description
                 .createTestDescription(testClass, method.getName()));
 
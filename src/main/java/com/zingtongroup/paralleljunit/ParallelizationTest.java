@@ -16,11 +16,33 @@ import java.lang.annotation.Target;
  * threads.
  * Test class instantiation is not included in test
  * duration check.
+ * With a scalability sweep the test method is instead executed
+ * at a range of thread counts, checking the parallel efficiency
+ * and a Universal Scalability Law fit of the throughput.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface ParallelizationTest {
     int multipleThreadsCount() default 3;
     double maxExecutionDurationMultipleForMultipleThreadsExecution() default 1.5;
+    ExecutionEngineType executionEngine() default ExecutionEngineType.DEFAULT;
+    TestInstanceScope testInstanceScope() default TestInstanceScope.PER_THREAD;
+    int testInstancePoolSize() default 0;
+    int warmUpIterations() default 1;
+    int warmUpTimeInMilliseconds() default 0;
+    double warmUpUntilCoefficientOfVariation() default 0;
+    int maxWarmUpTimeInMilliseconds() default 60000;
+    long maxAllocatedBytesPerIteration() default -1;
+    double maxCpuMillisPerIteration() default -1;
+    String flightRecordingOnFailureDirectory() default "";
+    double failOnRegressionPercent() default -1;
+    String isolationGroup() default ConcurrentTestMethods.EXCLUSIVE;
+    boolean synchronizedStart() default false;
+    boolean scalabilitySweep() default false;
+    int[] scalabilityThreadCounts() default {};
+    int repetitionsPerStep() default 3;
+    double minParallelEfficiency() default -1;
+    double maxContentionCoefficient() default -1;
+    double maxCoherencyCoefficient() default -1;
     Class<? extends Throwable> expected() default Test.None.class;
 }
@@ -3,39 +3,65 @@ package com.zingtongroup.paralleljunit;
 import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
-import org.junit.runners.model.TestTimedOutException;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 class ParallelizationTestRunner extends CustomTestMethodRunnerBase {
 
+    private final ParallelizationTest para;
     private final int multipleThreadsCount;
     private final double maxExecutionDurationMultipleForMultipleThreadsExecution;
-    private final ExecutorService testThreadPool;
+    private final ExecutionEngine executionEngine;
     private final List<TestMethodExecutor> testMethods;
-    private final List<Object> testClassObjects;
-    long singleThreadDurationInMilliseconds;
+    private final TestInstanceProvider testInstanceProvider;
+    private final int[] scalabilityThreadCounts;
+    private final boolean synchronizedStart;
+    private final ResourceUsageRecorder resourceUsageRecorder;
+    long singleThreadDurationInNanoseconds;
+    long parallelDurationInNanoseconds;
 
     ParallelizationTestRunner(RunNotifier notifier, Class<?> testClass, Method method) throws Exception {
         super(notifier, testClass, method);
-        singleThreadDurationInMilliseconds = 0;
-        ParallelizationTest para = method.getAnnotation(ParallelizationTest.class);
+        singleThreadDurationInNanoseconds = 0;
+        para = method.getAnnotation(ParallelizationTest.class);
         if(para == null) throw new Exception("Test method annotation is not @ParallelizationTest.");
+        if(method.getParameterCount() > 0)
+            throw new Exception("Test method " + method.getName() + " has a parameter, but @ParallelizationTest does not support feeder files.");
 
         multipleThreadsCount = para.multipleThreadsCount();
         maxExecutionDurationMultipleForMultipleThreadsExecution = para.maxExecutionDurationMultipleForMultipleThreadsExecution();
+        scalabilityThreadCounts = scalabilityThreadCounts(para);
 
         System.out.println("Running test method " + method.getName() + " to check parallelization.");
 
-        testClassObjects = new ArrayList<>();
-        testThreadPool = Executors.newFixedThreadPool(multipleThreadsCount);
+        int maxThreadCount = multipleThreadsCount;
+        for(int threadCount : scalabilityThreadCounts) maxThreadCount = Math.max(maxThreadCount, threadCount);
+        testInstanceProvider = TestInstanceProvider.create(perThreadScope(para.testInstanceScope()), maxThreadCount, para.testInstancePoolSize(), this);
+        synchronizedStart = useStartGate(para.synchronizedStart(), maxThreadCount, testInstanceProvider);
+        executionEngine = para.executionEngine().resolve();
         testMethods = new ArrayList<>();
+        resourceUsageRecorder = new ResourceUsageRecorder();
+    }
+
+    /**
+     * Thread counts of the scalability sweep, with the single thread step first, or an empty array without a sweep.
+     */
+    private static int[] scalabilityThreadCounts(ParallelizationTest para){
+        int[] threadCounts = para.scalabilityThreadCounts();
+        if(threadCounts.length == 0)
+            return para.scalabilitySweep() ? ScalabilityCurve.doublingThreadCounts(para.multipleThreadsCount()) : threadCounts;
+        List<Integer> sorted = new ArrayList<>();
+        sorted.add(1);
+        for(int threadCount : threadCounts)
+            if(threadCount > 0 && !sorted.contains(threadCount)) sorted.add(threadCount);
+        sorted.sort(null);
+        int[] result = new int[sorted.size()];
+        for(int i = 0; i < result.length; i++) result[i] = sorted.get(i);
+        return result;
     }
 
     @Override
@@ -43,86 +69,151 @@ class ParallelizationTestRunner extends CustomTestMethodRunnerBase {
         notifier.fireTestStarted(Description
                 .createTestDescription(testClass, method.getName()));
 
-        executeSingleThreadRun(null); //Warm up test execution to avoid initiation differences.
+        startFlightRecording(para.flightRecordingOnFailureDirectory());
+        testInstanceProvider.prepare();
+        new WarmUp(para.warmUpIterations(), para.warmUpTimeInMilliseconds(), para.warmUpUntilCoefficientOfVariation(), para.maxWarmUpTimeInMilliseconds())
+                .run(this, testInstanceProvider); //Warm up test execution to avoid initiation differences.
 
-        long startTime = System.currentTimeMillis();
-        executeSingleThreadRun(null);
-        this.singleThreadDurationInMilliseconds = System.currentTimeMillis() - startTime;
+        if(scalabilityThreadCounts.length > 0){
+            runScalabilitySweep();
+        } else {
+            Object singleThreadPhase = FlightRecorderSupport.get().beginPhase();
+            this.singleThreadDurationInNanoseconds = executeSingleThreadRun();
+            FlightRecorderSupport.get().endPhase(singleThreadPhase, method, "single thread");
+
+            parallelDurationInNanoseconds = executeTestInParallelThreads(multipleThreadsCount, true);
+            durationMultipleCheck(parallelDurationInNanoseconds, multipleThreadsCount);
+        }
+
+        resourceUsageCheck(para.maxAllocatedBytesPerIteration(), para.maxCpuMillisPerIteration(), resourceUsageRecorder);
+        baselineCheck(para.failOnRegressionPercent(), PerformanceBaseline.forTestMethod(method)
+                .metric("singleThreadDurationNanos", singleThreadDurationInNanoseconds, false)
+                .metric("parallelDurationNanos", parallelDurationInNanoseconds, false)
+                .metric("allocatedBytesPerIteration", resourceUsageRecorder.getMeanAllocatedBytes(), false)
+                .metric("cpuNanosPerIteration", resourceUsageRecorder.getMeanCpuTimeNanos(), false));
+        testExecutionExceptionCheck();
+        stopFlightRecording();
+        notifier.fireTestFinished(Description.createTestDescription(testClass, method.getName()));
+    }
 
-        instantiateTestClassObjects();
-        long parallelExecutionStartTime = System.currentTimeMillis();
-        executeTestInParallelThreads(testClassObjects);
-        long parallelExecutionDurationInMilliseconds = System.currentTimeMillis() - parallelExecutionStartTime;
-        if(parallelExecutionDurationInMilliseconds > singleThreadDurationInMilliseconds * maxExecutionDurationMultipleForMultipleThreadsExecution)
+    private void durationMultipleCheck(long parallelExecutionDurationInNanoseconds, int threadCount){
+        if(parallelExecutionDurationInNanoseconds > singleThreadDurationInNanoseconds * maxExecutionDurationMultipleForMultipleThreadsExecution)
             notifier.fireTestFailure(
                     new Failure(
                             Description.createTestDescription(testClass, method.getName()),
-                            new TestMethodExecutionDurationCheckFailedException("The single thread test execution took " + singleThreadDurationInMilliseconds + " ms while the " + multipleThreadsCount + " parallel threads execution took " + parallelExecutionDurationInMilliseconds + " ms.")
+                            new TestMethodExecutionDurationCheckFailedException("The single thread test execution took " + IterationStatistics.millis(singleThreadDurationInNanoseconds) + " while the " + threadCount + " parallel threads execution took " + IterationStatistics.millis(parallelExecutionDurationInNanoseconds) + ".")
                     )
             );
+    }
 
-        testExecutionExceptionCheck();
-        notifier.fireTestFinished(Description.createTestDescription(testClass, method.getName()));
+    /**
+     * Executes the test method at each thread count of the sweep, several repetitions per step, and checks
+     * the efficiency and Universal Scalability Law coefficients against the annotation limits.
+     */
+    private void runScalabilitySweep(){
+        int repetitions = Math.max(1, para.repetitionsPerStep());
+        ScalabilityCurve curve = new ScalabilityCurve();
+        for(int threadCount : scalabilityThreadCounts){
+            long[] durations = new long[repetitions];
+            for(int repetition = 0; repetition < repetitions; repetition++)
+                durations[repetition] = executeTestInParallelThreads(threadCount, repetition == 0);
+            curve.addStep(threadCount, durations);
+        }
+        System.out.println("Scalability of test method " + method.getName() + ", median of " + repetitions + " repetitions per thread count:");
+        System.out.println(curve);
+
+        ScalabilityCurve.Step single = curve.getStep(1);
+        ScalabilityCurve.Step highest = curve.getHighestStep();
+        singleThreadDurationInNanoseconds = single.medianDurationNanos;
+        parallelDurationInNanoseconds = highest.medianDurationNanos;
+        durationMultipleCheck(highest.medianDurationNanos, highest.threadCount);
+
+        double efficiency = curve.getParallelEfficiency(highest.threadCount);
+        if(para.minParallelEfficiency() >= 0 && efficiency < para.minParallelEfficiency())
+            scalabilityCheckFailure(String.format(Locale.ROOT, "The parallel efficiency at %d threads was %.2f while the expected min was %.2f.", highest.threadCount, efficiency, para.minParallelEfficiency()));
+        double contention = curve.getContentionCoefficient();
+        if(para.maxContentionCoefficient() >= 0 && !(contention <= para.maxContentionCoefficient()))
+            scalabilityCheckFailure(String.format(Locale.ROOT, "The contention coefficient (serial fraction) was %.4f while the expected max was %.4f.", contention, para.maxContentionCoefficient()));
+        double coherency = curve.getCoherencyCoefficient();
+        if(para.maxCoherencyCoefficient() >= 0 && !(coherency <= para.maxCoherencyCoefficient()))
+            scalabilityCheckFailure(String.format(Locale.ROOT, "The coherency coefficient was %.6f while the expected max was %.6f.", coherency, para.maxCoherencyCoefficient()));
     }
 
-    private void executeTestInParallelThreads(List<Object> testClassObjects) {
-        for(int i = 0; i < multipleThreadsCount; i++)
-            testMethods.add(new TestMethodExecutor(testClassObjects.get(i), method));
+    private void scalabilityCheckFailure(String message){
+        notifier.fireTestFailure(
+                new Failure(
+                        Description.createTestDescription(testClass, method.getName()),
+                        new TestMethodExecutionDurationCheckFailedException(message)
+                )
+        );
+    }
 
-        for (TestMethodExecutor testMethod : testMethods) {
+    /**
+     * @return Duration of the parallel execution in nanoseconds, from the start gate release if a start gate is used.
+     */
+    private long executeTestInParallelThreads(int threadCount, boolean reportStartSpread) {
+        StartGate startGate = synchronizedStart ? new StartGate(threadCount) : null;
+        ExecutorService testThreadPool = executionEngine.createExecutorService(threadCount);
+        List<TestMethodExecutor> executors = new ArrayList<>();
+        for(int i = 0; i < threadCount; i++)
+            executors.add(new TestMethodExecutor(testInstanceProvider, i, method, testMethodHandle, startGate, resourceUsageRecorder));
+        testMethods.addAll(executors);
+
+        Object parallelPhase = FlightRecorderSupport.get().beginPhase();
+        long parallelExecutionStartTime = System.nanoTime();
+        for (TestMethodExecutor testMethod : executors) {
             try {
                 testThreadPool.execute(testMethod);
             } catch (Exception e) {
-                innerExceptions.add(e);
+                errors.add(e);
             }
         }
 
         testThreadPool.shutdown();
-        threadsTimeoutCheck();
-    }
-
-    private void threadsTimeoutCheck(){
-        try {
-            if(!testThreadPool.awaitTermination(1, TimeUnit.MINUTES)){
-                notifier.fireTestFailure(new Failure(
-                        Description.createTestDescription(testClass, method.getName()),
-                        new TestTimedOutException(singleThreadDurationInMilliseconds, TimeUnit.MILLISECONDS))
-                );
+        if(startGate != null){
+            try {
+                if(!startGate.awaitArrivalsAndOpen())
+                    System.out.println("Not all threads of test method " + method.getName() + " were started by the execution engine in time for the start gate.");
+                parallelExecutionStartTime = startGate.getReleaseTime();
+            } catch (InterruptedException e) {
+                errors.add(e);
             }
-        } catch (InterruptedException e) {
-            innerExceptions.add(e);
         }
+        awaitTestMethodThreads(testThreadPool, executors, singleThreadDurationInNanoseconds, parallelExecutionStartTime);
+        long duration = System.nanoTime() - parallelExecutionStartTime;
+        FlightRecorderSupport.get().endPhase(parallelPhase, method, threadCount + " parallel threads");
+        if(startGate != null && reportStartSpread)
+            System.out.println(startGate.startSpreadReport());
+        return duration;
     }
 
     private void testExecutionExceptionCheck(){
         for (TestMethodExecutor testMethod : testMethods) {
-            if (testMethod.innerException != null) {
-                notifier.fireTestFailure(new Failure(Description.createTestDescription(testClass, method.getName()), testMethod.innerException));
-            }
+            if (testMethod.innerException != null)
+                errors.add(new TestMethodExecutionException(testMethod.innerException));
         }
+        innerExceptionCheck();
     }
 
-    private void instantiateTestClassObjects(){
-        for(int i = 0; i < multipleThreadsCount; i++){
-            try {
-                testClassObjects.add(testClass.getDeclaredConstructor().newInstance());
-            } catch (InstantiationException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                innerExceptions.add(new TestClassInstantiationException(e));
-            }
-        }
-    }
-
-    private void executeSingleThreadRun(Object testClassObject) {
-        if(testClassObject == null){
-            testClassObject = createTestClassInstance();
-        }
+    /**
+     * @return Duration of the single thread execution in nanoseconds, timed like the parallel execution:
+     * from after the Before methods if a start gate is used, else including them.
+     */
+    private long executeSingleThreadRun() {
+        Object testClassObject = null;
+        long startTime = System.nanoTime();
         try {
+            testClassObject = testInstanceProvider.acquire(0);
+            if(testClassObject == null) return System.nanoTime() - startTime;
             runBeforeMethods(testClassObject);
-            method.invoke(testClassObject);
+            if(synchronizedStart) startTime = System.nanoTime();
+            invokeTestMethod(testClassObject);
             runAfterMethods(testClassObject);
         } catch (Exception e) {
-            innerExceptions.add(new TestMethodExecutionException(e));
+            errors.add(new TestMethodExecutionException(e));
+        } finally {
+            if(testClassObject != null) testInstanceProvider.release(testClassObject);
         }
-
+        return System.nanoTime() - startTime;
     }
 }
@@ -0,0 +1,203 @@
+package com.zingtongroup.paralleljunit;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the records of a CSV or binary fixture file as the argument of parameterized test methods.
+ * The file is memory mapped and indexed once, and each record is decoded only when handed out. The runners decode
+ * the record before the test method execution is timed, so the decoding is not charged to the test method.
+ * <p>
+ * Records are claimed from a shared cursor in batches of up to BATCH_SIZE records per thread, so the threads
+ * only touch the shared cursor once per batch and never wait for each other. Small files use smaller batches,
+ * so that a UNIQUE_ONCE file is not used up by the batches of the first threads. In the RANDOM mode no cursor is used.
+ * <p>
+ * The parameter of the test method may be a String[] of the CSV fields, the String line, or the raw bytes
+ * of the record as a byte[] or read-only ByteBuffer. Binary files have records of a fixed size.
+ */
+class ParameterFeeder {
+
+    static final int BATCH_SIZE = 64;
+
+    private static final List<Class<?>> PARAMETER_TYPES = Arrays.asList(String[].class, String.class, byte[].class, ByteBuffer.class);
+
+    private final Path file;
+    private final FeederMode mode;
+    private final MappedByteBuffer buffer;
+    private final int recordSize;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private final int recordCount;
+    private final int batchSize;
+    private final AtomicLong cursor = new AtomicLong();
+    private final ThreadLocal<long[]> claimedBatch = ThreadLocal.withInitial(() -> new long[2]);
+    private Class<?> parameterType;
+
+    /**
+     * @param recordSize Size of each record in bytes for binary files, or 0 for text files with one record per line.
+     * @param skipHeader True to skip the first line of a text file.
+     */
+    ParameterFeeder(Path file, FeederMode mode, int recordSize, boolean skipHeader) throws IOException {
+        this.file = file;
+        this.mode = mode;
+        this.recordSize = recordSize;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() > Integer.MAX_VALUE) throw new IOException("Feeder file " + file + " is larger than 2 GB.");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(recordSize > 0){
+            lineStarts = null;
+            lineEnds = null;
+            recordCount = buffer.capacity() / recordSize;
+        } else {
+            int[] starts = new int[1024];
+            int[] ends = new int[1024];
+            int lineCount = 0;
+            int start = 0;
+            int size = buffer.capacity();
+            for(int i = 0; i <= size; i++){
+                if(i < size && buffer.get(i) != '\n') continue;
+                int end = i > start && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                if(end > start){
+                    if(lineCount == starts.length){
+                        starts = Arrays.copyOf(starts, lineCount * 2);
+                        ends = Arrays.copyOf(ends, lineCount * 2);
+                    }
+                    starts[lineCount] = start;
+                    ends[lineCount] = end;
+                    lineCount++;
+                }
+                start = i + 1;
+            }
+            int skipped = skipHeader && lineCount > 0 ? 1 : 0;
+            lineStarts = Arrays.copyOfRange(starts, skipped, lineCount);
+            lineEnds = Arrays.copyOfRange(ends, skipped, lineCount);
+            recordCount = lineStarts.length;
+        }
+        if(recordCount == 0) throw new IOException("Feeder file " + file + " has no records.");
+        batchSize = Math.max(1, Math.min(BATCH_SIZE, recordCount / 1024));
+    }
+
+    int getRecordCount(){
+        return recordCount;
+    }
+
+    /**
+     * Binds this feeder to a test method with one parameter, whose type decides how next() decodes the records.
+     * @return Method handle of type (Object,Object)Object taking the test class instance and the record.
+     */
+    MethodHandle bind(Method testMethod) throws Exception {
+        if(testMethod.getParameterCount() != 1 || !PARAMETER_TYPES.contains(testMethod.getParameterTypes()[0]))
+            throw new Exception("Test method " + testMethod.getName() + " with a feeder file must have one String[], String, byte[] or ByteBuffer parameter.");
+        testMethod.setAccessible(true);
+        parameterType = testMethod.getParameterTypes()[0];
+        return MethodHandles.lookup().unreflect(testMethod)
+                .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+    }
+
+    /**
+     * Claims the next record and decodes it as the parameter type of the bound test method.
+     */
+    Object next() throws FeederExhaustedException {
+        return next(parameterType);
+    }
+
+    /**
+     * Hands out the records from the first one again, e.g. after the warm-up. Only called while no other thread uses the feeder.
+     */
+    void rewind(){
+        cursor.set(0);
+        claimedBatch.remove();
+    }
+
+    /**
+     * Claims the next record and decodes it as the given parameter type.
+     */
+    Object next(Class<?> parameterType) throws FeederExhaustedException {
+        int record = nextRecordIndex();
+        if(parameterType == String[].class) return parseCsv(line(record));
+        if(parameterType == String.class) return line(record);
+        ByteBuffer bytes = slice(record);
+        if(parameterType == ByteBuffer.class) return bytes.asReadOnlyBuffer();
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        return array;
+    }
+
+    int nextRecordIndex() throws FeederExhaustedException {
+        if(mode == FeederMode.RANDOM) return ThreadLocalRandom.current().nextInt(recordCount);
+        long[] batch = claimedBatch.get();
+        if(batch[0] == batch[1]){
+            batch[0] = cursor.getAndAdd(batchSize);
+            batch[1] = batch[0] + batchSize;
+        }
+        long position = batch[0]++;
+        if(mode == FeederMode.UNIQUE_ONCE){
+            if(position >= recordCount) throw new FeederExhaustedException("All " + recordCount + " records of feeder file " + file + " have been used.");
+            return (int) position;
+        }
+        return (int) (position % recordCount);
+    }
+
+    private ByteBuffer slice(int record){
+        int start = recordSize > 0 ? record * recordSize : lineStarts[record];
+        int end = recordSize > 0 ? start + recordSize : lineEnds[record];
+        ByteBuffer slice = buffer.duplicate();
+        ((Buffer) slice).limit(end);
+        ((Buffer) slice).position(start);
+        return slice.slice();
+    }
+
+    private String line(int record){
+        ByteBuffer bytes = slice(record);
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        return new String(array, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits a CSV line into fields. Fields may be quoted, with doubled quotes inside quoted fields.
+     */
+    static String[] parseCsv(String line){
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
+            if(quoted){
+                if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"'){
+                    field.append('"');
+                    i++;
+                } else if(c == '"'){
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if(c == '"'){
+                quoted = true;
+            } else if(c == ','){
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
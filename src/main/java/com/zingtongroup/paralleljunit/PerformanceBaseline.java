@@ -0,0 +1,166 @@
+package com.zingtongroup.paralleljunit;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Local file based store of the performance summaries of earlier runs of a test method, used to detect regressions
+ * relative to a rolling baseline instead of against absolute limits that depend on the hardware.
+ * <p>
+ * Each test method has one file per environment fingerprint (processor count, JVM version and architecture),
+ * in the directory given by the system property <i>paralleljunit.baselineDirectory</i>, or .paralleljunit/baselines.
+ * Each line holds the metrics of one run, and only the last runs are kept as baseline. Every run is added, also
+ * a regressed one, so the baseline follows a lasting change after a few runs. A metric has regressed if it is
+ * worse than the baseline mean by more than the tolerance, and also by more than the noise of the baseline runs,
+ * three standard deviations.
+ */
+class PerformanceBaseline {
+
+    static final String DIRECTORY_PROPERTY = "paralleljunit.baselineDirectory";
+    static final int BASELINE_RUN_COUNT = 10;
+    static final int MIN_BASELINE_RUN_COUNT = 3;
+    static final double NOISE_STANDARD_DEVIATIONS = 3;
+
+    /**
+     * A metric of a run, and whether higher values are better, e.g. for throughput, or worse, e.g. for latency.
+     */
+    static class Metric {
+        final String name;
+        final double value;
+        final boolean higherIsBetter;
+
+        Metric(String name, double value, boolean higherIsBetter){
+            this.name = name;
+            this.value = value;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+
+    private final Path file;
+    private final List<Metric> metrics = new ArrayList<>();
+
+    PerformanceBaseline(Path directory, Method testMethod){
+        this.file = directory.resolve(fileName(testMethod.getDeclaringClass().getName() + "#" + testMethod.getName() + "@" + environmentFingerprint()));
+    }
+
+    static PerformanceBaseline forTestMethod(Method testMethod){
+        return new PerformanceBaseline(Paths.get(System.getProperty(DIRECTORY_PROPERTY, ".paralleljunit/baselines")), testMethod);
+    }
+
+    static String environmentFingerprint(){
+        return Runtime.getRuntime().availableProcessors() + "cpu-java" + System.getProperty("java.version") + "-" + System.getProperty("os.arch");
+    }
+
+    private static String fileName(String key){
+        return key.replaceAll("[^A-Za-z0-9._#@$-]", "_") + ".tsv";
+    }
+
+    Path getFile(){
+        return file;
+    }
+
+    /**
+     * Adds a metric of the current run. Values that were not measured, negative or NaN, are ignored.
+     */
+    PerformanceBaseline metric(String name, double value, boolean higherIsBetter){
+        if(value >= 0) metrics.add(new Metric(name, value, higherIsBetter));
+        return this;
+    }
+
+    /**
+     * Compares the metrics of the current run with the baseline of earlier runs.
+     * @return Description of each regressed metric, empty if none regressed or if there are too few earlier runs.
+     */
+    List<String> regressions(double tolerancePercent) throws IOException {
+        Map<String, List<Double>> baseline = readBaseline();
+        List<String> regressions = new ArrayList<>();
+        for(Metric metric : metrics){
+            List<Double> values = baseline.get(metric.name);
+            if(values == null || values.size() < MIN_BASELINE_RUN_COUNT) continue;
+            double mean = mean(values);
+            double standardDeviation = standardDeviation(values, mean);
+            double change = metric.higherIsBetter ? mean - metric.value : metric.value - mean;
+            if(change > mean * tolerancePercent / 100 && change > standardDeviation * NOISE_STANDARD_DEVIATIONS)
+                regressions.add(String.format(Locale.ROOT, "%s %s %.1f%% from the baseline mean %s of %d runs (standard deviation %s, tolerance %s%%).",
+                        metric.name, metric.higherIsBetter ? "decreased" : "increased", change * 100 / mean,
+                        format(mean), values.size(), format(standardDeviation), format(tolerancePercent)));
+        }
+        return regressions;
+    }
+
+    /**
+     * @return Number of earlier runs in the baseline, at most BASELINE_RUN_COUNT.
+     */
+    int baselineRunCount() throws IOException {
+        return Math.min(BASELINE_RUN_COUNT, readLines().size());
+    }
+
+    /**
+     * Adds the metrics of the current run to the store, which keeps only the last BASELINE_RUN_COUNT runs.
+     */
+    void save() throws IOException {
+        StringBuilder line = new StringBuilder().append(System.currentTimeMillis());
+        for(Metric metric : metrics)
+            line.append('\t').append(metric.name).append('=').append(format(metric.value));
+        List<String> lines = readLines();
+        List<String> keptLines = new ArrayList<>(lines.subList(Math.max(0, lines.size() - BASELINE_RUN_COUNT + 1), lines.size()));
+        keptLines.add(line.toString());
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, keptLines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private Map<String, List<Double>> readBaseline() throws IOException {
+        List<String> lines = readLines();
+        Map<String, List<Double>> baseline = new LinkedHashMap<>();
+        for(String line : lines.subList(Math.max(0, lines.size() - BASELINE_RUN_COUNT), lines.size())){
+            String[] fields = line.split("\t");
+            for(int i = 1; i < fields.length; i++){
+                int separator = fields[i].indexOf('=');
+                if(separator < 0) continue;
+                try {
+                    double value = Double.parseDouble(fields[i].substring(separator + 1));
+                    baseline.computeIfAbsent(fields[i].substring(0, separator), name -> new ArrayList<>()).add(value);
+                } catch (NumberFormatException e) {
+                    //Hand edited or truncated line. Ignored.
+                }
+            }
+        }
+        return baseline;
+    }
+
+    private List<String> readLines() throws IOException {
+        if(!Files.exists(file)) return Collections.emptyList();
+        List<String> lines = new ArrayList<>();
+        for(String line : Files.readAllLines(file, StandardCharsets.UTF_8))
+            if(!line.trim().isEmpty() && !line.startsWith("#")) lines.add(line);
+        return lines;
+    }
+
+    private static double mean(List<Double> values){
+        double sum = 0;
+        for(double value : values) sum += value;
+        return sum / values.size();
+    }
+
+    private static double standardDeviation(List<Double> values, double mean){
+        if(values.size() < 2) return 0;
+        double squaredDeviations = 0;
+        for(double value : values) squaredDeviations += (value - mean) * (value - mean);
+        return Math.sqrt(squaredDeviations / (values.size() - 1));
+    }
+
+    private static String format(double value){
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when a test performs worse than the baseline of its earlier runs by more than the given tolerance.
+ */
+public class PerformanceRegressionException extends Exception {
+
+    public PerformanceRegressionException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Execution engine with a fixed pool of platform threads.
+ */
+class PlatformThreadExecutionEngine implements ExecutionEngine {
+
+    @Override
+    public ExecutorService createExecutorService(int threadCount) {
+        return Executors.newFixedThreadPool(Math.max(1, threadCount), new WorkerThreadFactory());
+    }
+}
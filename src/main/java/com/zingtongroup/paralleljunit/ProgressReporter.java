@@ -0,0 +1,115 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically prints the progress of a running load test and passes it to the progress listeners.
+ * The reporter only reads the striped counters and latency histograms of the workers, and the latency
+ * percentiles of an interval are the difference between two snapshots of the cumulative histogram,
+ * so the workers never wait for the reporter.
+ */
+class ProgressReporter implements Runnable {
+
+    private static final double MIN_THROUGHPUT_GROWTH = 0.05;
+
+    private final LoadTestMethodRunner runner;
+    private final long intervalMilliseconds;
+    private final List<LoadTestProgressListener> listeners;
+    private ScheduledExecutorService scheduler;
+    private long startTime;
+    private long previousTime;
+    private LatencyHistogram previousLatencies;
+    private long previousErrorCount;
+    private int previousActiveThreadCount;
+    private double previousIterationsPerSecond;
+    private boolean plateauReported;
+
+    ProgressReporter(LoadTestMethodRunner runner, long intervalMilliseconds, List<LoadTestProgressListener> listeners){
+        this.runner = runner;
+        this.intervalMilliseconds = intervalMilliseconds;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Creates the reporter configured by the LoadTest annotation, or returns null if progress reporting is not enabled.
+     */
+    static ProgressReporter create(LoadTestMethodRunner runner, LoadTest loadTest) throws ReflectiveOperationException {
+        List<LoadTestProgressListener> listeners = new ArrayList<>();
+        for(Class<? extends LoadTestProgressListener> listenerClass : loadTest.progressListeners())
+            listeners.add(listenerClass.getDeclaredConstructor().newInstance());
+        long intervalMilliseconds = loadTest.progressReportIntervalInMilliseconds();
+        if(intervalMilliseconds <= 0 && listeners.isEmpty()) return null;
+        if(intervalMilliseconds <= 0) intervalMilliseconds = 1000;
+        return new ProgressReporter(runner, intervalMilliseconds, listeners);
+    }
+
+    void start(long startTime){
+        this.startTime = startTime;
+        this.previousTime = startTime;
+        this.previousLatencies = new LatencyHistogram();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "paralleljunit-progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this, intervalMilliseconds, intervalMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    void stop(){
+        if(scheduler == null) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        LatencyHistogram latencies = runner.latencyRecorder.getMergedHistogram();
+        LatencyHistogram intervalLatencies = LatencyHistogram.difference(latencies, previousLatencies);
+        long errorCount = runner.failedIterations.sum();
+        int activeThreadCount = runner.activeWorkers.intValue();
+        long intervalMillis = TimeUnit.NANOSECONDS.toMillis(now - previousTime);
+        double iterationsPerSecond = intervalMillis <= 0 ? 0 : intervalLatencies.getTotalCount() * 1000d / intervalMillis;
+
+        boolean plateau = false;
+        if(!plateauReported && previousActiveThreadCount > 0 && activeThreadCount > previousActiveThreadCount &&
+                iterationsPerSecond < previousIterationsPerSecond * (1 + MIN_THROUGHPUT_GROWTH)){
+            plateau = true;
+            plateauReported = true;
+        }
+
+        LoadTestProgress progress = new LoadTestProgress(
+                runner.method.getName(),
+                TimeUnit.NANOSECONDS.toMillis(now - startTime),
+                intervalMillis,
+                activeThreadCount,
+                runner.startedIterations.sum() - runner.finishedIterations.sum(),
+                latencies.getTotalCount(),
+                errorCount,
+                errorCount - previousErrorCount,
+                intervalLatencies,
+                plateau);
+        System.out.println(progress);
+        for(LoadTestProgressListener listener : listeners){
+            try {
+                listener.onProgress(progress);
+            } catch (RuntimeException e) {
+                System.out.println("Load test progress listener " + listener.getClass().getName() + " failed: " + e);
+            }
+        }
+
+        previousTime = now;
+        previousLatencies = latencies;
+        previousErrorCount = errorCount;
+        previousActiveThreadCount = activeThreadCount;
+        previousIterationsPerSecond = iterationsPerSecond;
+    }
+}
@@ -0,0 +1,49 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Uniform random sample of a bounded number of the items added from any number of threads, together with the
+ * count of all added items, so that memory use stays bounded however long a test runs. Adding takes no lock.
+ */
+class ReservoirSample<T> {
+
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLong count = new AtomicLong();
+
+    ReservoirSample(int size){
+        items = new AtomicReferenceArray<>(size);
+    }
+
+    void add(T item){
+        long index = count.getAndIncrement();
+        if(index < items.length()){
+            items.set((int) index, item);
+        } else {
+            long slot = ThreadLocalRandom.current().nextLong(index + 1);
+            if(slot < items.length()) items.set((int) slot, item);
+        }
+    }
+
+    long getCount(){
+        return count.get();
+    }
+
+    /**
+     * @return True if more items were added than the sample holds.
+     */
+    boolean isSampled(){
+        return count.get() > items.length();
+    }
+
+    List<T> getItems(){
+        List<T> result = new ArrayList<>();
+        for(int i = 0; i < items.length(); i++)
+            if(items.get(i) != null) result.add(items.get(i));
+        return result;
+    }
+}
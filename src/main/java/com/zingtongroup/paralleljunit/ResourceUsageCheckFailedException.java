@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when the test method allocates more memory or uses more CPU time per iteration than the given budget.
+ */
+public class ResourceUsageCheckFailedException extends Exception {
+
+    public ResourceUsageCheckFailedException(String message){
+        super(message);
+    }
+
+}
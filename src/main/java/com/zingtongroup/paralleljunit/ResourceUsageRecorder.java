@@ -0,0 +1,125 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the heap bytes allocated and the CPU time used by the test method executions, aggregated per test method.
+ * Measured on the executing thread through the ThreadMXBean, where the JVM supports it. Threads for which
+ * the JVM reports no value, e.g. virtual threads on some JVMs, are not recorded.
+ */
+class ResourceUsageRecorder {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean allocationMXBean = allocationMXBean();
+    private static final boolean cpuTimeSupported = cpuTimeSupported();
+
+    private final LongAdder allocationCount = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAccumulator maxAllocatedBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder cpuTimeCount = new LongAdder();
+    private final LongAdder cpuTimeNanos = new LongAdder();
+    private final LongAccumulator maxCpuTimeNanos = new LongAccumulator(Math::max, 0);
+
+    private static com.sun.management.ThreadMXBean allocationMXBean(){
+        try {
+            if(!(threadMXBean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if(!bean.isThreadAllocatedMemorySupported()) return null;
+            if(!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        } catch (LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean cpuTimeSupported(){
+        try {
+            if(!threadMXBean.isCurrentThreadCpuTimeSupported()) return false;
+            if(!threadMXBean.isThreadCpuTimeEnabled()) threadMXBean.setThreadCpuTimeEnabled(true);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far, or -1 if not available.
+     */
+    static long currentThreadAllocatedBytes(){
+        if(allocationMXBean == null) return -1;
+        return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return CPU time used by the current thread so far in nanoseconds, or -1 if not available.
+     */
+    static long currentThreadCpuTime(){
+        if(!cpuTimeSupported) return -1;
+        try {
+            return threadMXBean.getCurrentThreadCpuTime();
+        } catch (UnsupportedOperationException e) {
+            return -1; //Virtual threads
+        }
+    }
+
+    /**
+     * Records one test method execution from the values read before and after it on the executing thread.
+     */
+    void record(long allocatedBytesBefore, long allocatedBytesAfter, long cpuTimeBefore, long cpuTimeAfter){
+        if(allocatedBytesBefore >= 0 && allocatedBytesAfter >= allocatedBytesBefore){
+            long allocated = allocatedBytesAfter - allocatedBytesBefore;
+            allocationCount.increment();
+            allocatedBytes.add(allocated);
+            maxAllocatedBytes.accumulate(allocated);
+        }
+        if(cpuTimeBefore >= 0 && cpuTimeAfter >= cpuTimeBefore){
+            long cpuTime = cpuTimeAfter - cpuTimeBefore;
+            cpuTimeCount.increment();
+            cpuTimeNanos.add(cpuTime);
+            maxCpuTimeNanos.accumulate(cpuTime);
+        }
+    }
+
+    /**
+     * @return Mean bytes allocated per recorded execution, or NaN if nothing was recorded.
+     */
+    double getMeanAllocatedBytes(){
+        long count = allocationCount.sum();
+        return count == 0 ? Double.NaN : (double) allocatedBytes.sum() / count;
+    }
+
+    /**
+     * @return Mean CPU time per recorded execution in nanoseconds, or NaN if nothing was recorded.
+     */
+    double getMeanCpuTimeNanos(){
+        long count = cpuTimeCount.sum();
+        return count == 0 ? Double.NaN : (double) cpuTimeNanos.sum() / count;
+    }
+
+    boolean isEmpty(){
+        return allocationCount.sum() == 0 && cpuTimeCount.sum() == 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        if(allocationCount.sum() > 0)
+            report.append(String.format(Locale.ROOT, "Allocated mean %.0f bytes, max %d bytes per iteration",
+                    getMeanAllocatedBytes(), maxAllocatedBytes.get()));
+        if(cpuTimeCount.sum() > 0){
+            report.append(report.length() == 0 ? "CPU time" : ". CPU time");
+            report.append(" mean ").append(IterationStatistics.millis(getMeanCpuTimeNanos()))
+                    .append(", max ").append(IterationStatistics.millis(maxCpuTimeNanos.get())).append(" per iteration");
+        }
+        if(report.length() == 0){
+            if(currentThreadAllocatedBytes() < 0 && currentThreadCpuTime() < 0) return "Allocation and CPU time measurement is not supported by this JVM.";
+            return "Allocation and CPU time: no successful iteration recorded.";
+        }
+        report.append(" (").append(Math.max(allocationCount.sum(), cpuTimeCount.sum())).append(" iterations).");
+        return report.toString();
+    }
+}
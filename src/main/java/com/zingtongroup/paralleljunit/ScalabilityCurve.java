@@ -0,0 +1,173 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Throughput of a test method at increasing thread counts, with a fit of the Universal Scalability Law
+ * X(N) = X(1) * N / (1 + contention * (N - 1) + coherency * N * (N - 1)).
+ * The contention coefficient is the serial fraction of Amdahl's law, the coherency coefficient
+ * is the cost of keeping shared state consistent between threads, making throughput drop beyond a peak.
+ */
+class ScalabilityCurve {
+
+    static class Step {
+        final int threadCount;
+        final long medianDurationNanos;
+
+        Step(int threadCount, long medianDurationNanos){
+            this.threadCount = threadCount;
+            this.medianDurationNanos = medianDurationNanos;
+        }
+
+        /**
+         * Test method executions per second, each thread executing the test method once per repetition.
+         */
+        double getThroughputPerSecond(){
+            return threadCount * 1_000_000_000d / Math.max(1, medianDurationNanos);
+        }
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+    private double contention = Double.NaN;
+    private double coherency = Double.NaN;
+
+    /**
+     * Thread counts 1, 2, 4 and so on up to, and including, the given max thread count.
+     */
+    static int[] doublingThreadCounts(int maxThreadCount){
+        List<Integer> threadCounts = new ArrayList<>();
+        for(int threadCount = 1; threadCount < maxThreadCount; threadCount *= 2)
+            threadCounts.add(threadCount);
+        threadCounts.add(Math.max(1, maxThreadCount));
+        int[] result = new int[threadCounts.size()];
+        for(int i = 0; i < result.length; i++) result[i] = threadCounts.get(i);
+        return result;
+    }
+
+    void addStep(int threadCount, long[] repetitionDurationNanos){
+        long[] sorted = repetitionDurationNanos.clone();
+        Arrays.sort(sorted);
+        steps.add(new Step(threadCount, sorted[sorted.length / 2]));
+        contention = Double.NaN;
+        coherency = Double.NaN;
+    }
+
+    List<Step> getSteps(){
+        return steps;
+    }
+
+    Step getStep(int threadCount){
+        for(Step step : steps)
+            if(step.threadCount == threadCount) return step;
+        return null;
+    }
+
+    Step getHighestStep(){
+        Step highest = null;
+        for(Step step : steps)
+            if(highest == null || step.threadCount > highest.threadCount) highest = step;
+        return highest;
+    }
+
+    /**
+     * Throughput at the given thread count divided by the throughput at one thread times the thread count, or NaN
+     * without a single thread step.
+     */
+    double getParallelEfficiency(int threadCount){
+        Step single = getStep(1);
+        Step step = getStep(threadCount);
+        if(single == null || step == null) return Double.NaN;
+        return step.getThroughputPerSecond() / (threadCount * single.getThroughputPerSecond());
+    }
+
+    double getContentionCoefficient(){
+        fit();
+        return contention;
+    }
+
+    double getCoherencyCoefficient(){
+        fit();
+        return coherency;
+    }
+
+    /**
+     * Least squares fit of the linearized law N / C(N) - 1 = contention * (N - 1) + coherency * N * (N - 1),
+     * where C(N) = X(N) / X(1) is the relative capacity. Coefficients are bounded to be non-negative,
+     * falling back to an Amdahl fit with coherency 0. NaN if there are no multi-threaded steps to fit.
+     */
+    private void fit(){
+        if(!Double.isNaN(contention)) return;
+        Step single = getStep(1);
+        if(single == null) return;
+        double sxx = 0, sxz = 0, szz = 0, sxy = 0, szy = 0;
+        int pointCount = 0;
+        for(Step step : steps){
+            int n = step.threadCount;
+            if(n <= 1) continue;
+            double capacity = step.getThroughputPerSecond() / single.getThroughputPerSecond();
+            double y = n / capacity - 1;
+            double x = n - 1;
+            double z = (double) n * (n - 1);
+            sxx += x * x;
+            sxz += x * z;
+            szz += z * z;
+            sxy += x * y;
+            szy += z * y;
+            pointCount++;
+        }
+        if(pointCount == 0) return;
+        double determinant = sxx * szz - sxz * sxz;
+        double fittedContention = Double.NaN;
+        double fittedCoherency = Double.NaN;
+        if(pointCount >= 2 && Math.abs(determinant) > 1e-12){
+            fittedContention = (sxy * szz - szy * sxz) / determinant;
+            fittedCoherency = (szy * sxx - sxy * sxz) / determinant;
+        }
+        if(Double.isNaN(fittedCoherency) || fittedCoherency < 0 || fittedContention < 0){
+            if(fittedContention < 0 && fittedCoherency >= 0){
+                fittedContention = 0;
+                fittedCoherency = Math.max(0, szy / szz);
+            } else {
+                fittedCoherency = 0;
+                fittedContention = Math.max(0, sxy / sxx);
+            }
+        }
+        contention = fittedContention;
+        coherency = fittedCoherency;
+    }
+
+    /**
+     * Thread count with the highest throughput according to the fitted law, or infinity if throughput never drops.
+     */
+    double getPeakThreadCount(){
+        fit();
+        if(!(coherency > 0)) return Double.POSITIVE_INFINITY;
+        return Math.sqrt((1 - contention) / coherency);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%8s %14s %16s %10s %11s%n", "Threads", "Median (ms)", "Executions/s", "Speed-up", "Efficiency"));
+        Step single = getStep(1);
+        for(Step step : steps){
+            report.append(String.format(Locale.ROOT, "%8d %14.3f %16.1f %10.2f %11.2f%n",
+                    step.threadCount,
+                    step.medianDurationNanos / 1_000_000d,
+                    step.getThroughputPerSecond(),
+                    single == null ? Double.NaN : step.getThroughputPerSecond() / single.getThroughputPerSecond(),
+                    getParallelEfficiency(step.threadCount)));
+        }
+        if(Double.isNaN(getContentionCoefficient())){
+            report.append("Too few thread counts to fit the Universal Scalability Law.");
+        } else {
+            double peak = getPeakThreadCount();
+            report.append(String.format(Locale.ROOT, "Universal Scalability Law fit: contention (serial fraction) %.4f, coherency %.6f, ", contention, coherency));
+            report.append(Double.isInfinite(peak) ? "no throughput peak." : String.format(Locale.ROOT, "throughput peak at %.1f threads.", peak));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A public no argument method of the test class executed as part of a ScenarioMix, with its relative weight.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface ScenarioMethod {
+    String name();
+    int weight() default 1;
+}
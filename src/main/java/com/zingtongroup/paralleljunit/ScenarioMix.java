@@ -0,0 +1,18 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Turns a LoadTest into a mix of test methods, like production traffic with e.g. 70% reads, 25% searches and 5% writes.
+ * Each iteration executes one of the listed methods, picked at random by weight, instead of the annotated method.
+ * All methods share the worker threads, ramp-up, arrival rate and duration of the load test, and latency and
+ * errors are reported per method as well as in aggregate.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ScenarioMix {
+    ScenarioMethod[] value();
+}
@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when the test method threads stop making progress, with the thread dumps of the stalled threads.
+ */
+public class StallDetectedException extends Exception {
+
+    public StallDetectedException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Start barrier releasing all test method threads together, after their Before methods have run.
+ * The runner opens the gate when all threads have arrived, setting a release time slightly ahead.
+ * The waiting threads are woken up and then spin until the release time, so the wake-up
+ * latency of the individual threads does not spread out the actual start of the test method executions.
+ * <p>
+ * Waiting is done through ForkJoinPool.managedBlock so that a ForkJoinPool execution engine
+ * adds threads instead of deadlocking when there are more test threads than pool threads.
+ */
+class StartGate {
+
+    private static final long RELEASE_LEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long ARRIVAL_TIMEOUT_SECONDS = 10;
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final int threadCount;
+    private final CountDownLatch arrivals;
+    private final CountDownLatch opened;
+    private final AtomicLongArray actualStartTimes;
+    private volatile long releaseTime;
+
+    StartGate(int threadCount){
+        this.threadCount = threadCount;
+        this.arrivals = new CountDownLatch(threadCount);
+        this.opened = new CountDownLatch(1);
+        this.actualStartTimes = new AtomicLongArray(threadCount);
+        for(int i = 0; i < threadCount; i++)
+            actualStartTimes.set(i, NOT_STARTED);
+    }
+
+    /**
+     * Called by each test method thread when ready to start. Blocks until the gate opens
+     * and returns the actual start time of the thread.
+     */
+    long arriveAndAwaitRelease(int threadIndex) throws InterruptedException {
+        arrivals.countDown();
+        awaitManaged(opened);
+        long release = releaseTime;
+        long now;
+        while((now = System.nanoTime()) - release < 0)
+            Thread.yield();
+        actualStartTimes.set(threadIndex, now);
+        return now;
+    }
+
+    /**
+     * Called by a test method thread that will not run the test method, e.g. because its Before methods failed.
+     */
+    void arriveWithoutStarting(){
+        arrivals.countDown();
+    }
+
+    /**
+     * Called by the runner. Waits until all threads have arrived and opens the gate. If the execution engine
+     * cannot run all threads at the same time the gate is opened anyway after a timeout, to avoid a deadlock.
+     * @return True if all threads arrived before the gate opened.
+     */
+    boolean awaitArrivalsAndOpen() throws InterruptedException {
+        boolean allArrived;
+        try {
+            allArrived = arrivals.await(ARRIVAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            releaseTime = System.nanoTime() + RELEASE_LEAD_NANOS;
+            opened.countDown();
+        }
+        return allArrived;
+    }
+
+    long getReleaseTime(){
+        return releaseTime;
+    }
+
+    /**
+     * Describes the spread between the first and last actual start of the released threads.
+     */
+    String startSpreadReport(){
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        int startedCount = 0;
+        for(int i = 0; i < threadCount; i++){
+            long startTime = actualStartTimes.get(i);
+            if(startTime == NOT_STARTED) continue;
+            startedCount++;
+            first = Math.min(first, startTime);
+            last = Math.max(last, startTime);
+        }
+        if(startedCount == 0) return "No thread passed the start gate.";
+        return startedCount + " of " + threadCount + " threads released together. Actual starts spread " +
+                IterationStatistics.millis(last - first) + " (first " + IterationStatistics.millis(first - releaseTime) +
+                ", last " + IterationStatistics.millis(last - releaseTime) + " after release).";
+    }
+
+    private static void awaitManaged(CountDownLatch latch) throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                latch.await();
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return latch.getCount() == 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.internal.MethodSorter;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reflection metadata of a test class, resolved once per class and cached.
+ * The Before and After methods are found the way JUnit finds them, including inherited
+ * and non-public methods and in the order JUnit runs them, and are invoked through
+ * pre-resolved method handles instead of a reflection scan for every iteration.
+ */
+class TestClassMetadata {
+
+    private static final ClassValue<TestClassMetadata> metadataCache = new ClassValue<TestClassMetadata>() {
+        @Override
+        protected TestClassMetadata computeValue(Class<?> type) {
+            return new TestClassMetadata(type);
+        }
+    };
+
+    private static final MethodType INSTANCE_METHOD_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType LIFECYCLE_METHOD_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private final MethodHandle constructor;
+    private final Exception constructorLookupException;
+    private final MethodHandle[] beforeMethods;
+    private final MethodHandle[] afterMethods;
+    private final ConcurrentHashMap<Method, MethodHandle> testMethods;
+
+    private TestClassMetadata(Class<?> testClass){
+        MethodHandle constructorHandle = null;
+        Exception lookupException = null;
+        try {
+            Constructor<?> declaredConstructor = testClass.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            constructorHandle = MethodHandles.lookup().unreflectConstructor(declaredConstructor).asType(MethodType.methodType(Object.class));
+        } catch (Exception e) {
+            lookupException = e;
+        }
+        this.constructor = constructorHandle;
+        this.constructorLookupException = lookupException;
+        this.beforeMethods = findLifecycleMethods(testClass, Before.class, true);
+        this.afterMethods = findLifecycleMethods(testClass, After.class, false);
+        this.testMethods = new ConcurrentHashMap<>();
+    }
+
+    static TestClassMetadata forClass(Class<?> testClass){
+        return metadataCache.get(testClass);
+    }
+
+    Object newInstance() throws Exception {
+        if(constructor == null) throw constructorLookupException;
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    void runBeforeMethods(Object testClassInstance) throws InvocationTargetException {
+        for(MethodHandle beforeMethod : beforeMethods)
+            invokeLifecycleMethod(beforeMethod, testClassInstance);
+    }
+
+    void runAfterMethods(Object testClassInstance) throws InvocationTargetException {
+        for(MethodHandle afterMethod : afterMethods)
+            invokeLifecycleMethod(afterMethod, testClassInstance);
+    }
+
+    /**
+     * Returns a method handle of type (Object)Object invoking the given test method on a test class instance.
+     */
+    MethodHandle testMethodHandle(Method method){
+        MethodHandle handle = testMethods.get(method);
+        if(handle == null){
+            handle = unreflect(method).asType(INSTANCE_METHOD_TYPE);
+            testMethods.putIfAbsent(method, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Invokes a test method handle, wrapping anything thrown in an InvocationTargetException like Method.invoke does.
+     */
+    static Object invokeTestMethod(MethodHandle testMethod, Object testClassInstance) throws InvocationTargetException {
+        try {
+            return (Object) testMethod.invokeExact(testClassInstance);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Invokes a test method handle with the feeder record as argument, or without argument if the record is null.
+     */
+    static Object invokeTestMethod(MethodHandle testMethod, Object testClassInstance, Object argument) throws InvocationTargetException {
+        if(argument == null) return invokeTestMethod(testMethod, testClassInstance);
+        try {
+            return (Object) testMethod.invokeExact(testClassInstance, argument);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private static void invokeLifecycleMethod(MethodHandle lifecycleMethod, Object testClassInstance) throws InvocationTargetException {
+        try {
+            lifecycleMethod.invokeExact(testClassInstance);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private static MethodHandle[] findLifecycleMethods(Class<?> testClass, Class<? extends Annotation> annotation, boolean superClassMethodsFirst){
+        List<Method> methods = new ArrayList<>();
+        for(Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()){
+            for(Method method : MethodSorter.getDeclaredMethods(type)){
+                if(!method.isAnnotationPresent(annotation) || Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0) continue;
+                if(isShadowed(method, methods)) continue;
+                if(superClassMethodsFirst)
+                    methods.add(0, method);
+                else
+                    methods.add(method);
+            }
+        }
+        MethodHandle[] handles = new MethodHandle[methods.size()];
+        for(int i = 0; i < handles.length; i++)
+            handles[i] = unreflect(methods.get(i)).asType(LIFECYCLE_METHOD_TYPE);
+        return handles;
+    }
+
+    private static boolean isShadowed(Method method, List<Method> subClassMethods){
+        for(Method subClassMethod : subClassMethods){
+            if(subClassMethod.getName().equals(method.getName()) &&
+                    Arrays.equals(subClassMethod.getParameterTypes(), method.getParameterTypes()))
+                return true;
+        }
+        return false;
+    }
+
+    private static MethodHandle unreflect(Method method){
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access method " + method + ".", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Provides the test class instances for the test method executions according to a {@link TestInstanceScope}.
+ * Instances that are re-used are created by {@link #prepare()} before the test starts.
+ * Instantiation failures are recorded by the runner, and a null instance is returned.
+ */
+abstract class TestInstanceProvider {
+
+    final CustomTestMethodRunnerBase runner;
+
+    TestInstanceProvider(CustomTestMethodRunnerBase runner){
+        this.runner = runner;
+    }
+
+    static TestInstanceProvider create(TestInstanceScope scope, int threadCount, int poolSize, CustomTestMethodRunnerBase runner){
+        switch (scope){
+            case PER_THREAD:
+                return new PerThread(runner, threadCount);
+            case SHARED:
+                return new Shared(runner);
+            case POOLED:
+                return new Pooled(runner, poolSize > 0 ? poolSize : threadCount);
+            default:
+                return new PerIteration(runner);
+        }
+    }
+
+    /**
+     * Creates the instances that are re-used between executions. Called before the measured test execution.
+     */
+    void prepare(){
+    }
+
+    /**
+     * @param threadIndex Index of the thread slot the instance is used in.
+     */
+    abstract Object acquire(int threadIndex) throws InterruptedException;
+
+    void release(Object testClassInstance){
+    }
+
+    /**
+     * @return The number of threads that can hold a test class instance at the same time.
+     */
+    int getMaxConcurrentUsers(){
+        return Integer.MAX_VALUE;
+    }
+
+    static class PerIteration extends TestInstanceProvider {
+
+        PerIteration(CustomTestMethodRunnerBase runner){
+            super(runner);
+        }
+
+        @Override
+        Object acquire(int threadIndex) {
+            return runner.createTestClassInstance();
+        }
+    }
+
+    static class PerThread extends TestInstanceProvider {
+
+        private final Object[] testClassInstances;
+
+        PerThread(CustomTestMethodRunnerBase runner, int threadCount){
+            super(runner);
+            testClassInstances = new Object[threadCount];
+        }
+
+        @Override
+        void prepare() {
+            for(int i = 0; i < testClassInstances.length; i++)
+                testClassInstances[i] = runner.createTestClassInstance();
+        }
+
+        @Override
+        Object acquire(int threadIndex) {
+            return testClassInstances[threadIndex];
+        }
+    }
+
+    static class Shared extends TestInstanceProvider {
+
+        private Object testClassInstance;
+
+        Shared(CustomTestMethodRunnerBase runner){
+            super(runner);
+        }
+
+        @Override
+        void prepare() {
+            testClassInstance = runner.createTestClassInstance();
+        }
+
+        @Override
+        Object acquire(int threadIndex) {
+            return testClassInstance;
+        }
+    }
+
+    static class Pooled extends TestInstanceProvider {
+
+        private final int poolSize;
+        private final BlockingQueue<Object> pool;
+        private int createdInstanceCount;
+
+        Pooled(CustomTestMethodRunnerBase runner, int poolSize){
+            super(runner);
+            this.poolSize = poolSize;
+            this.pool = new ArrayBlockingQueue<>(poolSize);
+        }
+
+        @Override
+        void prepare() {
+            for(int i = 0; i < poolSize; i++){
+                Object testClassInstance = runner.createTestClassInstance();
+                if(testClassInstance == null) continue;
+                pool.offer(testClassInstance);
+                createdInstanceCount++;
+            }
+        }
+
+        @Override
+        Object acquire(int threadIndex) throws InterruptedException {
+            if(createdInstanceCount == 0) return null;
+            return pool.take();
+        }
+
+        @Override
+        void release(Object testClassInstance) {
+            pool.offer(testClassInstance);
+        }
+
+        @Override
+        int getMaxConcurrentUsers() {
+            return poolSize;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * How test class instances are shared between the test method executions, similar to JMH State scopes.
+ * Instances are always constructed outside of the measured execution time.
+ */
+public enum TestInstanceScope {
+    /**
+     * A new test class instance for every test method execution.
+     * For ParallelTest and ParallelizationTest, where each thread runs the test method once, this equals PER_THREAD.
+     */
+    PER_ITERATION,
+    /**
+     * One test class instance per thread, created before the test starts and re-used for all executions in that thread.
+     */
+    PER_THREAD,
+    /**
+     * One test class instance shared by all threads. The test class must be thread safe.
+     */
+    SHARED,
+    /**
+     * A bounded pool of test class instances, created before the test starts. Each execution borrows an instance
+     * and returns it when finished, so expensive instances are re-used without being shared concurrently.
+     */
+    POOLED
+}
@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception summarizing the errors of a test grouped by error signature, with sampled instances as cause and suppressed exceptions.
+ */
+public class TestMethodErrorsException extends Exception {
+
+    public TestMethodErrorsException(String message){
+        super(message);
+    }
+
+}
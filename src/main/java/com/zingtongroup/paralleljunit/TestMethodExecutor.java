@@ -1,27 +1,79 @@
 package com.zingtongroup.paralleljunit;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 class TestMethodExecutor implements Runnable {
 
-    Object testClassObject;
-    Method method;
+    TestInstanceProvider testInstanceProvider;
+    int threadIndex;
+    Method testMethod;
+    MethodHandle testMethodHandle;
+    ParameterFeeder feeder;
+    StartGate startGate;
+    ResourceUsageRecorder resourceUsageRecorder;
+    LockContentionSampler lockContentionSampler;
     Exception innerException;
     Object testMethodReturnObject;
+    volatile Thread thread;
+    volatile boolean finished;
 
     @Override
     public void run() {
+        Object testClassObject = null;
+        boolean arrivedAtStartGate = startGate == null;
+        thread = Thread.currentThread();
         try {
+            testClassObject = testInstanceProvider.acquire(threadIndex);
+            if(testClassObject == null) return; //Instantiation failure already recorded by the runner.
             CustomTestMethodRunnerBase.runBeforeMethods(testClassObject);
-            testMethodReturnObject = method.invoke(testClassObject);
+            Object argument = feeder == null ? null : feeder.next();
+            if(startGate != null){
+                arrivedAtStartGate = true;
+                startGate.arriveAndAwaitRelease(threadIndex);
+            }
+            //The harness calls surround the allocation and CPU time readings, so that they are not charged to the test method.
+            Object iterationEvent = FlightRecorderSupport.get().beginIteration();
+            if(lockContentionSampler != null) lockContentionSampler.threadStarted();
+            long allocatedBytesBefore = ResourceUsageRecorder.currentThreadAllocatedBytes();
+            long cpuTimeBefore = ResourceUsageRecorder.currentThreadCpuTime();
+            try {
+                testMethodReturnObject = AsyncTestMethods.await(TestClassMetadata.invokeTestMethod(testMethodHandle, testClassObject, argument));
+                if(resourceUsageRecorder != null)
+                    resourceUsageRecorder.record(allocatedBytesBefore, ResourceUsageRecorder.currentThreadAllocatedBytes(), cpuTimeBefore, ResourceUsageRecorder.currentThreadCpuTime());
+            } catch (InvocationTargetException e) {
+                FlightRecorderSupport.get().endIteration(iterationEvent, testMethod, threadIndex, FlightRecorderSupport.OUTCOME_FAILURE);
+                throw e;
+            } finally {
+                if(lockContentionSampler != null) lockContentionSampler.threadFinished();
+            }
+            FlightRecorderSupport.get().endIteration(iterationEvent, testMethod, threadIndex, FlightRecorderSupport.OUTCOME_SUCCESS);
             CustomTestMethodRunnerBase.runAfterMethods(testClassObject);
         } catch (Exception e) {
             innerException = e;
+        } finally {
+            if(!arrivedAtStartGate) startGate.arriveWithoutStarting();
+            if(testClassObject != null) testInstanceProvider.release(testClassObject);
+            finished = true;
         }
     }
 
-    TestMethodExecutor(Object testClassObject, Method testMethod){
-        this.testClassObject = testClassObject;
-        this.method = testMethod;
+    TestMethodExecutor(TestInstanceProvider testInstanceProvider, int threadIndex, Method testMethod){
+        this(testInstanceProvider, threadIndex, testMethod, TestClassMetadata.forClass(testMethod.getDeclaringClass()).testMethodHandle(testMethod), null, null);
+    }
+
+    /**
+     * @param testMethodHandle Handle invoking the test method, taking the record of the feeder as second argument if a feeder is set.
+     * @param startGate Gate to wait at between the Before methods and the test method, or null to start right away.
+     * @param resourceUsageRecorder Recorder of the allocation and CPU time of the test method execution, or null.
+     */
+    TestMethodExecutor(TestInstanceProvider testInstanceProvider, int threadIndex, Method testMethod, MethodHandle testMethodHandle, StartGate startGate, ResourceUsageRecorder resourceUsageRecorder){
+        this.testInstanceProvider = testInstanceProvider;
+        this.threadIndex = threadIndex;
+        this.testMethod = testMethod;
+        this.testMethodHandle = testMethodHandle;
+        this.startGate = startGate;
+        this.resourceUsageRecorder = resourceUsageRecorder;
     }
 }
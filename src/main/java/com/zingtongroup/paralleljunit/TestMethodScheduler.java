@@ -0,0 +1,134 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class level scheduler running independent test methods concurrently within a thread budget.
+ * Exclusive test methods run first, one at a time. The other test methods are packed by starting the
+ * method with the largest thread demand that fits in the remaining budget whenever a method finishes,
+ * keeping the budget as full as possible to minimize the total wall time of the test class.
+ */
+class TestMethodScheduler {
+
+    interface TestMethodTask {
+        void run() throws Exception;
+    }
+
+    static class ScheduledTestMethod {
+        final String name;
+        final int threadDemand;
+        final String isolationGroup;
+        final TestMethodTask task;
+
+        ScheduledTestMethod(String name, int threadDemand, String isolationGroup, TestMethodTask task){
+            this.name = name;
+            this.threadDemand = threadDemand;
+            this.isolationGroup = isolationGroup;
+            this.task = task;
+        }
+
+        boolean isExclusive(){
+            return ConcurrentTestMethods.EXCLUSIVE.equals(isolationGroup);
+        }
+    }
+
+    private final int threadBudget;
+    private final List<ScheduledTestMethod> exclusiveMethods = new ArrayList<>();
+    private final List<ScheduledTestMethod> pendingMethods = new ArrayList<>();
+    private final Set<String> busyIsolationGroups = new HashSet<>();
+    private final List<String> startOrder = new ArrayList<>();
+    private int freeThreads;
+    private int runningCount;
+    private Exception firstException;
+
+    TestMethodScheduler(int threadBudget){
+        this.threadBudget = threadBudget > 0 ? threadBudget : Runtime.getRuntime().availableProcessors();
+        this.freeThreads = this.threadBudget;
+    }
+
+    void add(String name, int threadDemand, String isolationGroup, TestMethodTask task){
+        ScheduledTestMethod method = new ScheduledTestMethod(name, Math.max(1, Math.min(threadDemand, threadBudget)), isolationGroup, task);
+        if(method.isExclusive()){
+            exclusiveMethods.add(method);
+            return;
+        }
+        int index = 0;
+        while(index < pendingMethods.size() && pendingMethods.get(index).threadDemand >= method.threadDemand) index++;
+        pendingMethods.add(index, method);
+    }
+
+    /**
+     * Runs all added test methods and returns when they have all finished.
+     * @throws Exception The first exception thrown by a test method task, after all tasks have finished.
+     */
+    void run() throws Exception {
+        for(ScheduledTestMethod method : exclusiveMethods){
+            startOrder.add(method.name);
+            method.task.run();
+        }
+        if(pendingMethods.isEmpty()) return;
+        ExecutorService executor = Executors.newCachedThreadPool(new WorkerThreadFactory());
+        try {
+            synchronized (this){
+                while(!pendingMethods.isEmpty() || runningCount > 0){
+                    ScheduledTestMethod next = nextFitting();
+                    if(next == null){
+                        wait();
+                        continue;
+                    }
+                    start(next);
+                    executor.execute(() -> runAndRelease(next));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if(firstException != null) throw firstException;
+    }
+
+    /**
+     * @return Names of the test methods in the order they were started.
+     */
+    synchronized List<String> getStartOrder(){
+        return new ArrayList<>(startOrder);
+    }
+
+    private ScheduledTestMethod nextFitting(){
+        for(ScheduledTestMethod method : pendingMethods){
+            if(method.threadDemand > freeThreads) continue;
+            if(!method.isolationGroup.isEmpty() && busyIsolationGroups.contains(method.isolationGroup)) continue;
+            return method;
+        }
+        return null;
+    }
+
+    private void start(ScheduledTestMethod method){
+        pendingMethods.remove(method);
+        freeThreads -= method.threadDemand;
+        runningCount++;
+        if(!method.isolationGroup.isEmpty()) busyIsolationGroups.add(method.isolationGroup);
+        startOrder.add(method.name);
+    }
+
+    private void runAndRelease(ScheduledTestMethod method){
+        try {
+            method.task.run();
+        } catch (Exception e) {
+            synchronized (this){
+                if(firstException == null) firstException = e;
+            }
+        } finally {
+            synchronized (this){
+                freeThreads += method.threadDemand;
+                runningCount--;
+                busyIsolationGroups.remove(method.isolationGroup);
+                notifyAll();
+            }
+        }
+    }
+}
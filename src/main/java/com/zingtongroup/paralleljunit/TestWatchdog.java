@@ -0,0 +1,150 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for the test method threads of a test to finish while watching for deadlocks and stalls, instead of
+ * waiting blindly until a timeout. The JVM is polled for deadlocked threads involving the test method threads,
+ * and the test is considered stalled if no thread finished or used any CPU time for a number of times the
+ * expected duration of the test. Stalls are not detected while a running thread has no CPU time measurement,
+ * e.g. a virtual thread, since a busy thread could then not be told from a stalled one. On a deadlock or stall
+ * the thread dumps of the threads involved are kept as diagnosis and the test method threads are interrupted,
+ * so the rest of the test class can continue.
+ */
+class TestWatchdog {
+
+    static final long POLL_INTERVAL_MILLISECONDS = 20;
+    static final int STALL_DURATION_MULTIPLE = 10;
+    static final long MIN_STALL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    enum Outcome {
+        TERMINATED,
+        DEADLOCK,
+        STALL,
+        TIMEOUT
+    }
+
+    private final ThreadMXBean threadMXBean;
+    private final ExecutorService threadPool;
+    private final List<TestMethodExecutor> executors;
+    private final long stallNanos;
+    private final long timeoutNanos;
+    private String diagnosis = "";
+
+    /**
+     * @param expectedDurationNanos Expected duration of the test method, or 0 if unknown to only detect deadlocks.
+     * @param timeoutNanos Max time to wait for the threads to finish.
+     */
+    TestWatchdog(ExecutorService threadPool, List<TestMethodExecutor> executors, long expectedDurationNanos, long timeoutNanos){
+        this.threadMXBean = ManagementFactory.getThreadMXBean();
+        this.threadPool = threadPool;
+        this.executors = executors;
+        this.stallNanos = expectedDurationNanos <= 0 ? 0 : Math.max(MIN_STALL_NANOS, expectedDurationNanos * STALL_DURATION_MULTIPLE);
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Waits until the thread pool has terminated, a deadlock or stall is found, or the timeout has passed.
+     * The thread pool is shut down now unless it terminated.
+     */
+    Outcome awaitTermination() throws InterruptedException {
+        long startTime = System.nanoTime();
+        long lastProgressTime = startTime;
+        int lastFinishedCount = 0;
+        long lastCpuTime = 0;
+        while(!threadPool.awaitTermination(POLL_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS)){
+            long now = System.nanoTime();
+            long[] deadlockedThreadIds = deadlockedTestThreadIds();
+            if(deadlockedThreadIds.length > 0){
+                diagnosis = "Deadlocked threads:" + System.lineSeparator() + threadDump(deadlockedThreadIds);
+                threadPool.shutdownNow();
+                return Outcome.DEADLOCK;
+            }
+            int finishedCount = 0;
+            long cpuTime = 0;
+            boolean cpuTimeUnknown = false;
+            for(TestMethodExecutor executor : executors){
+                if(executor.finished) finishedCount++;
+                Thread thread = executor.thread;
+                if(thread == null || executor.finished) continue;
+                long threadCpuTime = threadMXBean.getThreadCpuTime(thread.getId());
+                if(threadCpuTime < 0) cpuTimeUnknown = true;
+                else cpuTime += threadCpuTime;
+            }
+            if(cpuTimeUnknown || finishedCount != lastFinishedCount || cpuTime > lastCpuTime) lastProgressTime = now;
+            lastFinishedCount = finishedCount;
+            lastCpuTime = cpuTime;
+            if(stallNanos > 0 && now - lastProgressTime > stallNanos){
+                diagnosis = "No test method thread finished or used CPU time for " + IterationStatistics.millis(now - lastProgressTime) + ". Running threads:" + System.lineSeparator() + threadDump(runningTestThreadIds());
+                threadPool.shutdownNow();
+                return Outcome.STALL;
+            }
+            if(now - startTime > timeoutNanos){
+                diagnosis = "Running threads:" + System.lineSeparator() + threadDump(runningTestThreadIds());
+                threadPool.shutdownNow();
+                return Outcome.TIMEOUT;
+            }
+        }
+        return Outcome.TERMINATED;
+    }
+
+    String getDiagnosis(){
+        return diagnosis;
+    }
+
+    private long[] runningTestThreadIds(){
+        List<Long> threadIds = new ArrayList<>();
+        for(TestMethodExecutor executor : executors){
+            Thread thread = executor.thread;
+            if(thread != null && !executor.finished) threadIds.add(thread.getId());
+        }
+        long[] result = new long[threadIds.size()];
+        for(int i = 0; i < result.length; i++) result[i] = threadIds.get(i);
+        return result;
+    }
+
+    /**
+     * @return Ids of all threads in deadlock cycles that involve at least one test method thread.
+     */
+    private long[] deadlockedTestThreadIds(){
+        long[] deadlocked = threadMXBean.isSynchronizerUsageSupported() ? threadMXBean.findDeadlockedThreads() : threadMXBean.findMonitorDeadlockedThreads();
+        if(deadlocked == null) return new long[0];
+        for(long threadId : deadlocked)
+            for(long testThreadId : runningTestThreadIds())
+                if(threadId == testThreadId) return deadlocked;
+        return new long[0];
+    }
+
+    /**
+     * Full stack traces of the given threads, with the locks they hold and wait for.
+     */
+    String threadDump(long[] threadIds){
+        StringBuilder dump = new StringBuilder();
+        for(ThreadInfo info : threadMXBean.getThreadInfo(threadIds, threadMXBean.isObjectMonitorUsageSupported(), threadMXBean.isSynchronizerUsageSupported())){
+            if(info == null) continue;
+            dump.append('"').append(info.getThreadName()).append("\" #").append(info.getThreadId()).append(' ').append(info.getThreadState());
+            if(info.getLockName() != null) dump.append(" on ").append(info.getLockName());
+            if(info.getLockOwnerName() != null) dump.append(" owned by \"").append(info.getLockOwnerName()).append("\" #").append(info.getLockOwnerId());
+            dump.append(System.lineSeparator());
+            StackTraceElement[] stackTrace = info.getStackTrace();
+            for(int depth = 0; depth < stackTrace.length; depth++){
+                dump.append("    at ").append(stackTrace[depth]).append(System.lineSeparator());
+                for(MonitorInfo monitor : info.getLockedMonitors())
+                    if(monitor.getLockedStackDepth() == depth)
+                        dump.append("    - locked ").append(monitor).append(System.lineSeparator());
+            }
+            for(LockInfo synchronizer : info.getLockedSynchronizers())
+                dump.append("    - holds ").append(synchronizer).append(System.lineSeparator());
+            dump.append(System.lineSeparator());
+        }
+        return dump.toString();
+    }
+}
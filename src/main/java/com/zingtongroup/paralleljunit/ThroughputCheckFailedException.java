@@ -0,0 +1,12 @@
+package com.zingtongroup.paralleljunit;
+
+/**
+ * Exception thrown when the max sustainable throughput of a load test is below the given floor.
+ */
+public class ThroughputCheckFailedException extends Exception {
+
+    public ThroughputCheckFailedException(String message){
+        super(message);
+    }
+
+}
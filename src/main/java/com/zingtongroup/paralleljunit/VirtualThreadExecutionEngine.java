@@ -0,0 +1,24 @@
+package com.zingtongroup.paralleljunit;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Execution engine starting a new virtual thread for each submitted task.
+ * Looked up reflectively since virtual threads are only available from Java 21.
+ */
+class VirtualThreadExecutionEngine implements ExecutionEngine {
+
+    @Override
+    public ExecutorService createExecutorService(int threadCount) {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factoryMethod.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later. Running on Java " + System.getProperty("java.version") + ".", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create virtual thread executor.", e);
+        }
+    }
+}
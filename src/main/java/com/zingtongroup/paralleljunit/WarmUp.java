@@ -0,0 +1,103 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm-up phase executing the test method before the measured test execution, so that the measured
+ * code is JIT compiled and caches are populated. Warm-up executions are never part of the measurement.
+ * <p>
+ * The warm-up runs for a number of iterations and/or a duration. In the until stable mode it continues
+ * until the coefficient of variation of the test method duration over a sliding window of iterations
+ * drops below a threshold, bounded by a max warm-up time.
+ */
+class WarmUp {
+
+    static final int STABILITY_WINDOW_SIZE = 20;
+
+    private final int iterations;
+    private final long durationNanos;
+    private final double untilCoefficientOfVariation;
+    private final long maxDurationNanos;
+
+    WarmUp(int iterations, int timeInMilliseconds, double untilCoefficientOfVariation, int maxTimeInMilliseconds){
+        this.iterations = Math.max(0, iterations);
+        this.durationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeInMilliseconds));
+        this.untilCoefficientOfVariation = untilCoefficientOfVariation;
+        this.maxDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxTimeInMilliseconds));
+    }
+
+    boolean isEnabled(){
+        return iterations > 0 || durationNanos > 0 || untilCoefficientOfVariation > 0;
+    }
+
+    /**
+     * Executes the warm-up iterations in the calling thread, on the test class instance of the first thread slot.
+     * Failing iterations are counted in the printed summary but do not fail the test.
+     */
+    void run(CustomTestMethodRunnerBase runner, TestInstanceProvider testInstanceProvider){
+        if(!isEnabled()) return;
+        Object phase = FlightRecorderSupport.get().beginPhase();
+        long[] window = new long[STABILITY_WINDOW_SIZE];
+        long startTime = System.nanoTime();
+        int count = 0;
+        int failedCount = 0;
+        double coefficientOfVariation = Double.NaN;
+        while(!isDone(count, System.nanoTime() - startTime, coefficientOfVariation)){
+            Object testClassInstance;
+            try {
+                testClassInstance = testInstanceProvider.acquire(0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if(testClassInstance == null) break; //Instantiation failure already recorded by the runner.
+            try {
+                CustomTestMethodRunnerBase.runBeforeMethods(testClassInstance);
+                long iterationStartTime = System.nanoTime();
+                runner.invokeTestMethod(testClassInstance);
+                window[count % STABILITY_WINDOW_SIZE] = System.nanoTime() - iterationStartTime;
+                CustomTestMethodRunnerBase.runAfterMethods(testClassInstance);
+            } catch (Exception e) {
+                failedCount++;
+                window[count % STABILITY_WINDOW_SIZE] = 0;
+            } finally {
+                testInstanceProvider.release(testClassInstance);
+            }
+            count++;
+            if(untilCoefficientOfVariation > 0 && count >= STABILITY_WINDOW_SIZE)
+                coefficientOfVariation = coefficientOfVariation(window);
+        }
+        if(runner.feeder != null) runner.feeder.rewind(); //The measurement starts from the first record, also for UNIQUE_ONCE feeders.
+        FlightRecorderSupport.get().endPhase(phase, runner.method, "warm-up");
+        System.out.println(report(runner, count, failedCount, System.nanoTime() - startTime, coefficientOfVariation));
+    }
+
+    private boolean isDone(int count, long elapsedNanos, double coefficientOfVariation){
+        if(untilCoefficientOfVariation > 0 && elapsedNanos >= maxDurationNanos) return true;
+        if(count < iterations || elapsedNanos < durationNanos) return false;
+        return untilCoefficientOfVariation <= 0 || coefficientOfVariation <= untilCoefficientOfVariation;
+    }
+
+    static double coefficientOfVariation(long[] values){
+        double sum = 0;
+        for(long value : values) sum += value;
+        double mean = sum / values.length;
+        if(mean <= 0) return Double.NaN;
+        double squaredDeviations = 0;
+        for(long value : values) squaredDeviations += (value - mean) * (value - mean);
+        return Math.sqrt(squaredDeviations / values.length) / mean;
+    }
+
+    private String report(CustomTestMethodRunnerBase runner, int count, int failedCount, long elapsedNanos, double coefficientOfVariation){
+        StringBuilder report = new StringBuilder("Warm-up of test method " + runner.method.getName() + ": " + count +
+                " iterations in " + IterationStatistics.millis(elapsedNanos) + ", " + failedCount + " failed.");
+        if(untilCoefficientOfVariation > 0){
+            if(coefficientOfVariation <= untilCoefficientOfVariation)
+                report.append(String.format(Locale.ROOT, " Stable with a coefficient of variation of %.3f over the last %d iterations.", coefficientOfVariation, STABILITY_WINDOW_SIZE));
+            else
+                report.append(String.format(Locale.ROOT, " Not stable within the max warm-up time, coefficient of variation %.3f over the last %d iterations (target %.3f).", coefficientOfVariation, STABILITY_WINDOW_SIZE, untilCoefficientOfVariation));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.zingtongroup.paralleljunit;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads for test method execution, so that hanging test threads never keep the JVM alive.
+ */
+class WorkerThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "paralleljunit-worker-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,142 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncTestMethodsTests {
+
+    private static final ScheduledExecutorService client = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "async-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static CompletableFuture<String> respondAfter(long milliseconds){
+        CompletableFuture<String> response = new CompletableFuture<>();
+        client.schedule(() -> response.complete("OK"), milliseconds, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    @RunWith(ParallelJUnit.class)
+    public static class AsyncLoadTest {
+        static final AtomicInteger afterCount = new AtomicInteger();
+
+        @After
+        public void tearDown() {
+            afterCount.incrementAndGet();
+        }
+
+        @LoadTest(maxThreadCount = 1, maxInFlight = 20, totalDurationInMilliseconds = 1000, abruptTerminationAtTestEnd = false)
+        public CompletionStage<String> nonBlockingRequest() {
+            return respondAfter(20);
+        }
+    }
+
+    @RunWith(ParallelJUnit.class)
+    public static class UnfinishedAsyncLoadTest {
+        static final AtomicInteger afterCount = new AtomicInteger();
+        static final List<CompletableFuture<String>> responses = new CopyOnWriteArrayList<>();
+
+        @After
+        public void tearDown() {
+            afterCount.incrementAndGet();
+        }
+
+        @LoadTest(maxThreadCount = 1, maxInFlight = 1000, totalDurationInMilliseconds = 500, maxExecutionTimeIndividualIteration = 100)
+        public CompletionStage<String> requestWithoutResponse() {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        }
+    }
+
+    @RunWith(ParallelJUnit.class)
+    public static class FailingAsyncParallelTest {
+        @ParallelTest(threadCount = 2)
+        public CompletableFuture<String> failingRequest() {
+            return respondAfter(10).thenApply(response -> {
+                throw new IllegalStateException("Bad response");
+            });
+        }
+    }
+
+    public static class SharedInstanceAsyncLoadTest {
+        @LoadTest(maxInFlight = 10, testInstanceScope = TestInstanceScope.PER_THREAD)
+        public CompletionStage<String> perThreadInstance() {
+            return respondAfter(1);
+        }
+    }
+
+    @Test
+    public void completedResultShouldBeReturned() throws Exception {
+        Assert.assertEquals("OK", AsyncTestMethods.await(respondAfter(10)));
+        Assert.assertEquals("plain", AsyncTestMethods.await("plain"));
+    }
+
+    @Test
+    public void failedResultShouldBeThrownAsTestMethodFailure() {
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("Oups"));
+        try {
+            AsyncTestMethods.await(failed.thenApply(value -> value));
+            Assert.fail("Expected the failure of the result.");
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void loadTestShouldKeepIterationsInFlightWithoutBlockingTheWorker() {
+        AsyncLoadTest.afterCount.set(0);
+        Result result = new JUnitCore().run(AsyncLoadTest.class);
+        Assert.assertEquals(0, result.getFailureCount());
+        //One worker with 20 iterations of 20 ms in flight makes about 1000 iterations per second, 50 if it blocked.
+        Assert.assertTrue("After methods run: " + AsyncLoadTest.afterCount.get(), AsyncLoadTest.afterCount.get() > 300);
+    }
+
+    @Test
+    public void iterationsInFlightShouldBeAbortedAtAbruptTestEnd() {
+        UnfinishedAsyncLoadTest.afterCount.set(0);
+        UnfinishedAsyncLoadTest.responses.clear();
+        Result result = new JUnitCore().run(UnfinishedAsyncLoadTest.class);
+        for(CompletableFuture<String> response : UnfinishedAsyncLoadTest.responses){
+            Assert.assertTrue(response.isCancelled());
+            response.complete("Too late");
+        }
+        Assert.assertEquals(1000, UnfinishedAsyncLoadTest.responses.size());
+        Assert.assertEquals(0, result.getFailureCount());
+        Assert.assertEquals(0, UnfinishedAsyncLoadTest.afterCount.get());
+    }
+
+    @Test
+    public void failureOfAsyncParallelTestShouldFailTheTest() {
+        Result result = new JUnitCore().run(FailingAsyncParallelTest.class);
+        Assert.assertEquals(1, result.getFailureCount());
+        Assert.assertTrue(ErrorSignature.rootCause(result.getFailures().get(0).getException().getCause()) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void iterationsInFlightShouldNotShareATestClassInstance() throws NoSuchMethodException {
+        try {
+            new LoadTestMethodRunner(new RunNotifier(), SharedInstanceAsyncLoadTest.class, SharedInstanceAsyncLoadTest.class.getMethod("perThreadInstance"));
+            Assert.fail("maxInFlight > 1 with PER_THREAD test class instances should be rejected.");
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage().contains("maxInFlight"));
+        }
+    }
+}
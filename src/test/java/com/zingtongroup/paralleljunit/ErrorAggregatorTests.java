@@ -0,0 +1,135 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ErrorAggregatorTests {
+
+    @RunWith(ParallelJUnit.class)
+    public static class FailingParallelTest {
+        @ParallelTest(threadCount = 4)
+        public void failsInEveryThread() {
+            throw new IllegalStateException("Oups");
+        }
+    }
+
+    public static class ExpectedFailure extends RuntimeException {
+    }
+
+    @RunWith(ParallelJUnit.class)
+    public static class ExpectedFailureParallelTest {
+        @ParallelTest(threadCount = 4, expected = ExpectedFailure.class)
+        public void failsAsExpectedInEveryThread() {
+            throw new ExpectedFailure();
+        }
+    }
+
+    public static class ExpectedFailureTests {
+        @ParallelTest(expected = ExpectedFailure.class)
+        public void parallelTest() {
+        }
+
+        @ParallelizationTest(expected = ExpectedFailure.class)
+        public void parallelizationTest() {
+        }
+
+        @LoadTest(expected = ExpectedFailure.class)
+        public void loadTest() {
+        }
+    }
+
+    private static Exception failure(String message){
+        return new TestMethodExecutionException(new IllegalStateException(message));
+    }
+
+    @Test
+    public void errorsShouldBeGroupedBySignature() {
+        ErrorAggregator errors = new ErrorAggregator(null);
+        for(int i = 0; i < 1000; i++) errors.add(failure("Oups " + i));
+        errors.add(new IllegalArgumentException("Other"));
+        List<ErrorAggregator.ErrorGroup> groups = errors.getGroups();
+        Assert.assertEquals(2, groups.size());
+        Assert.assertEquals(1001, errors.getErrorCount());
+        Assert.assertEquals(1000, groups.get(0).getCount());
+        Assert.assertTrue(groups.get(0).signature.startsWith(IllegalStateException.class.getName()));
+        Assert.assertEquals(ErrorAggregator.SAMPLE_SIZE, groups.get(0).getSamples().size());
+        Assert.assertTrue(errors.toString().contains("1000 x java.lang.IllegalStateException"));
+    }
+
+    @Test
+    public void expectedExceptionsShouldOnlyBeCounted() {
+        ErrorAggregator errors = new ErrorAggregator(TestMethodExecutionException.class);
+        errors.add(failure("Expected"));
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertEquals(1, errors.getExpectedCount());
+    }
+
+    @Test
+    public void wrappedExpectedExceptionsShouldOnlyBeCounted() {
+        ErrorAggregator errors = new ErrorAggregator(ExpectedFailure.class);
+        errors.add(new TestMethodExecutionException(new InvocationTargetException(new ExpectedFailure())));
+        errors.add(failure("Unexpected"));
+        Assert.assertEquals(1, errors.getErrorCount());
+        Assert.assertEquals(1, errors.getExpectedCount());
+    }
+
+    @Test
+    public void expectedExceptionOfParallelTestShouldNotFailIt() {
+        Result result = new JUnitCore().run(ExpectedFailureParallelTest.class);
+        Assert.assertEquals(0, result.getFailureCount());
+    }
+
+    @Test
+    public void expectedExceptionShouldBeReadFromTheRunnerAnnotation() throws Exception {
+        RunNotifier notifier = new RunNotifier();
+        Class<?> testClass = ExpectedFailureTests.class;
+        Assert.assertEquals(ExpectedFailure.class, new ParallelTestRunner(notifier, testClass, testClass.getMethod("parallelTest")).expectedException);
+        Assert.assertEquals(ExpectedFailure.class, new ParallelizationTestRunner(notifier, testClass, testClass.getMethod("parallelizationTest")).expectedException);
+        Assert.assertEquals(ExpectedFailure.class, new LoadTestMethodRunner(notifier, testClass, testClass.getMethod("loadTest")).expectedException);
+    }
+
+    @Test
+    public void groupCountShouldBeBounded() {
+        ErrorAggregator errors = new ErrorAggregator(null);
+        for(int i = 0; i < ErrorAggregator.MAX_GROUP_COUNT + 50; i++){
+            Exception e = new IllegalStateException();
+            e.setStackTrace(new StackTraceElement[]{new StackTraceElement("Generated", "method" + i, "Generated.java", i)});
+            errors.add(e);
+        }
+        Assert.assertEquals(ErrorAggregator.MAX_GROUP_COUNT + 1, errors.getGroups().size());
+        Assert.assertEquals(50, errors.getGroups().get(0).getCount());
+        Assert.assertEquals(ErrorAggregator.OVERFLOW_SIGNATURE, errors.getGroups().get(0).signature);
+    }
+
+    @Test
+    public void concurrentlyAddedErrorsShouldAllBeCounted() throws InterruptedException {
+        ErrorAggregator errors = new ErrorAggregator(null);
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++){
+            Thread thread = new Thread(() -> {
+                for(int i = 0; i < 10_000; i++) errors.add(failure("Oups"));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads) thread.join();
+        Assert.assertEquals(40_000, errors.getErrorCount());
+    }
+
+    @Test
+    public void parallelTestThreadErrorsShouldBeReportedAsOneFailure() {
+        Result result = new JUnitCore().run(FailingParallelTest.class);
+        Assert.assertEquals(1, result.getFailureCount());
+        Throwable failure = result.getFailures().get(0).getException();
+        Assert.assertTrue(failure instanceof TestMethodErrorsException);
+        Assert.assertTrue(failure.getMessage().contains("4 errors with 1 distinct error signatures."));
+    }
+}
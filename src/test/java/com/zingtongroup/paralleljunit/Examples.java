@@ -6,6 +6,11 @@ import org.junit.runner.RunWith;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RunWith(ParallelJUnit.class)
 public class Examples {
@@ -36,6 +41,11 @@ public class Examples {
         Thread.sleep(100);
     }
 
+    @ParallelizationTest(multipleThreadsCount = 8, scalabilitySweep = true, minParallelEfficiency = 0.7, maxContentionCoefficient = 0.1)
+    public void parallelizationTestWithScalabilitySweep() throws InterruptedException {
+        Thread.sleep(50);
+    }
+
     @LoadTest(maxThreadCount = 3, totalDurationInMilliseconds = 1000)
     public void loadTest() throws InterruptedException {
         System.out.println("Running thread at " + new SimpleDateFormat("HH:mm:ss SS").format(new Date()));
@@ -55,4 +65,97 @@ public class Examples {
         Thread.sleep(1000);
     }
 
+    @LoadTest(maxThreadCount = 4, totalDurationInMilliseconds = 2000, maxP50Millis = 15, maxP99Millis = 50)
+    public void loadTestWithPercentileAssertions() throws InterruptedException {
+        Thread.sleep(10);
+    }
+
+    @LoadTest(maxThreadCount = 10, totalDurationInMilliseconds = 2000, targetIterationsPerSecond = 200, arrivalDistribution = ArrivalDistribution.POISSON, maxP99Millis = 50)
+    public void loadTestWithConstantArrivalRate() throws InterruptedException {
+        Thread.sleep(10);
+    }
+
+    @ParallelTest(threadCount = 4, executionEngine = ExecutionEngineType.FORK_JOIN_POOL)
+    public void parallelTestOnSharedForkJoinPool() {
+        Assert.assertTrue(Thread.currentThread().getName().startsWith("paralleljunit-"));
+    }
+
+    @LoadTest(maxThreadCount = 4, totalDurationInMilliseconds = 3000, iterationLogFile = "target/loadTestWithIterationLog.bin", expected = TestMethodExecutionException.class)
+    public void loadTestWithIterationLog() throws Exception {
+        Thread.sleep(5);
+        if(Math.random() < 0.01) throw new Exception("Oups");
+    }
+
+    public static class ProgressCollector implements LoadTestProgressListener {
+        static final List<LoadTestProgress> reports = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onProgress(LoadTestProgress progress) {
+            reports.add(progress);
+        }
+    }
+
+    @LoadTest(maxThreadCount = 4, rampUpTimeInMilliseconds = 1500, totalDurationInMilliseconds = 3000, progressReportIntervalInMilliseconds = 500, progressListeners = ProgressCollector.class)
+    public void loadTestWithProgressReport() throws InterruptedException {
+        Thread.sleep(10);
+    }
+
+    @LoadTest(maxThreadCount = 2, totalDurationInMilliseconds = 1000, warmUpIterations = 1000, maxAllocatedBytesPerIteration = 10_000, maxCpuMillisPerIteration = 5)
+    public void loadTestWithAllocationBudget() {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 100; i++) text.append(i);
+        Assert.assertTrue(text.length() > 0);
+    }
+
+    @LoadTest(maxThreadCount = 8, totalDurationInMilliseconds = 4000, loadProfile = LoadProfile.STAIRCASE, stepThreadCount = 2, slaP99Millis = 50, minSustainableThroughput = 100)
+    public void staircaseLoadTestFindingTheKnee() throws InterruptedException {
+        Thread.sleep(5);
+        synchronized (Examples.class){ //Shared resource limiting the throughput to about 500 iterations/s
+            Thread.sleep(2);
+        }
+    }
+
+    @ParallelTest(threadCount = 4, profileLockContention = true, maxBlockedTimeRatio = 0.9)
+    public void parallelTestWithLockContentionProfile() throws InterruptedException {
+        for(int i = 0; i < 10; i++){
+            synchronized (Examples.class){
+                Thread.sleep(2);
+            }
+        }
+    }
+
+    @LoadTest(maxThreadCount = 4, totalDurationInMilliseconds = 10000, feederFile = "src/test/resources/customers.csv",
+            feederSkipHeader = true, feederMode = FeederMode.UNIQUE_ONCE)
+    public void eachCustomerOnce(String[] customer) {
+        Assert.assertEquals("Customer " + customer[0], customer[1]);
+    }
+
+    @ParallelTest(threadCount = 8, feederFile = "src/test/resources/customers.csv", feederSkipHeader = true)
+    public void customerPerThread(String[] customer) {
+        Assert.assertEquals(2, customer.length);
+    }
+
+    private static final Map<Integer, String> catalog = new ConcurrentHashMap<>();
+
+    @LoadTest(maxThreadCount = 8, totalDurationInMilliseconds = 2000)
+    @ScenarioMix({
+            @ScenarioMethod(name = "readProduct", weight = 70),
+            @ScenarioMethod(name = "searchProducts", weight = 25),
+            @ScenarioMethod(name = "storeProduct", weight = 5)})
+    public void productionTrafficMix() {
+    }
+
+    public void readProduct() {
+        catalog.get(ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    public void searchProducts() {
+        Assert.assertTrue(catalog.values().stream().filter(name -> name.endsWith("7")).count() >= 0);
+    }
+
+    public void storeProduct() {
+        int id = ThreadLocalRandom.current().nextInt(1000);
+        catalog.put(id, "Product " + id);
+    }
+
 }
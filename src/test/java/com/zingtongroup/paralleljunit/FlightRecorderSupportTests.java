@@ -0,0 +1,36 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FlightRecorderSupportTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordingShouldOnlyBeWrittenWhenRequested() throws IOException, NoSuchMethodException {
+        Method method = FlightRecorderSupportTests.class.getMethod("recordingShouldOnlyBeWrittenWhenRequested");
+        Path directory = folder.getRoot().toPath();
+        FlightRecorderSupport.FailureRecording discarded = FlightRecorderSupport.get().startFailureRecording(method, directory);
+        if(discarded == null) return; //No Java Flight Recorder in this JVM.
+        Assert.assertNull(discarded.stop(false));
+        Assert.assertEquals(0, directory.toFile().list().length);
+
+        Assert.assertNull("No iteration event without a recording.", FlightRecorderSupport.get().beginIteration());
+        FlightRecorderSupport.FailureRecording kept = FlightRecorderSupport.get().startFailureRecording(method, directory);
+        Object iteration = FlightRecorderSupport.get().beginIteration();
+        Assert.assertNotNull(iteration);
+        FlightRecorderSupport.get().endIteration(iteration, method, 0, FlightRecorderSupport.OUTCOME_SUCCESS);
+        Path file = kept.stop(true);
+        Assert.assertTrue(Files.size(file) > 0);
+        Assert.assertTrue(file.getFileName().toString().startsWith("FlightRecorderSupportTests.recordingShouldOnlyBeWrittenWhenRequested-"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ForkJoinPoolExecutionEngineTests {
+
+    @Test
+    public void tasksBeyondTheParallelismShouldWaitForAFreePoolThread() throws InterruptedException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int threadCount = parallelism * 2;
+        ExecutorService executorService = new ForkJoinPoolExecutionEngine().createExecutorService(threadCount);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        for(int i = 0; i < threadCount; i++){
+            executorService.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                finished.incrementAndGet();
+            });
+        }
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(threadCount, finished.get());
+        Assert.assertTrue(maxRunning.get() <= parallelism);
+    }
+}
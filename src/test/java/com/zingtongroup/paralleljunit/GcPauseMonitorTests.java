@@ -0,0 +1,36 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GcPauseMonitorTests {
+
+    @Test
+    public void explicitGcShouldBeRecordedAndCorrelatedWithSlowIterations(){
+        GcPauseMonitor monitor = new GcPauseMonitor();
+        monitor.start();
+        long iterationStartTime = System.nanoTime();
+        System.gc();
+        monitor.stop();
+        monitor.recordSlowIteration(iterationStartTime, System.nanoTime() - iterationStartTime);
+
+        Assert.assertFalse(monitor.getPauses().isEmpty());
+        Assert.assertTrue(monitor.getPauseFraction() > 0);
+        Assert.assertTrue(monitor.slowIterationReport(), monitor.slowIterationReport().startsWith("1 of 1 slow iterations overlapped a GC pause."));
+    }
+
+    @Test
+    public void slowIterationsShouldBeSampledWithinBounds(){
+        GcPauseMonitor monitor = new GcPauseMonitor();
+        monitor.start();
+        long iterationStartTime = System.nanoTime();
+        System.gc();
+        monitor.stop();
+        for(int i = 0; i < 100_000; i++)
+            monitor.recordSlowIteration(iterationStartTime, System.nanoTime() - iterationStartTime);
+
+        Assert.assertTrue(monitor.getPauseCount() > 0);
+        Assert.assertTrue(monitor.slowIterationReport(), monitor.slowIterationReport().startsWith(
+                GcPauseMonitor.MAX_SLOW_ITERATIONS + " of " + GcPauseMonitor.MAX_SLOW_ITERATIONS + " sampled of 100000 slow iterations overlapped a GC pause."));
+    }
+}
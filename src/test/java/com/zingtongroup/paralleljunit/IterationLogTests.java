@@ -0,0 +1,53 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class IterationLogTests {
+
+    @Test
+    public void writtenIterationsShouldBeReadByAnalyzer() throws Exception {
+        Path file = Files.createTempFile("iterations", ".bin");
+        long startTime = System.nanoTime();
+        IterationLogWriter writer = new IterationLogWriter(file, "Tests#iterationLog", startTime, 2);
+        IterationLogWriter.Buffer first = writer.newBuffer(0);
+        IterationLogWriter.Buffer second = writer.newBuffer(1);
+        for(int i = 0; i < 3000; i++){
+            first.append(startTime + i * 1_000_000L, 2_000_000, IterationLogWriter.OUTCOME_SUCCESS, 0);
+            second.append(startTime + i * 1_000_000L, 4_000_000, IterationLogWriter.OUTCOME_SUCCESS, 0);
+        }
+        second.append(startTime + 1_500_000_000L, 1_000_000, IterationLogWriter.OUTCOME_FAILURE, writer.errorSignature(new IllegalStateException("Oups")));
+        writer.close();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new IterationLogAnalyzer(file, 1000).analyze(new PrintStream(output, true, "UTF-8"));
+        String report = output.toString("UTF-8");
+        Files.delete(file);
+
+        Assert.assertTrue(report, report.contains("of test Tests#iterationLog"));
+        Assert.assertTrue(report, report.contains("Total: 6000 iterations"));
+        Assert.assertTrue(report, report.contains("1 iterations failed"));
+        Assert.assertTrue(report, report.contains("Error burst 1.0 s - 2.0 s: 1 errors."));
+        Assert.assertTrue(report, report.contains("1 x java.lang.IllegalStateException at com.zingtongroup.paralleljunit.IterationLogTests"));
+    }
+
+    @Test
+    public void errorSignaturesShouldGetDistinctIds() throws Exception {
+        Path file = Files.createTempFile("iterations", ".bin");
+        IterationLogWriter writer = new IterationLogWriter(file, "Tests#errorSignatures", System.nanoTime(), 1);
+        int[] ids = new int[2];
+        for(int i = 0; i < ids.length; i++)
+            ids[i] = writer.errorSignature(new IllegalStateException("Oups " + i));
+        int other = writer.errorSignature(new IllegalArgumentException("Oups"));
+        Assert.assertNotEquals(0, ids[0]);
+        Assert.assertEquals(ids[0], ids[1]);
+        Assert.assertNotEquals(ids[0], other);
+        writer.close();
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,63 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void percentilesShouldBeWithinHistogramPrecision(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long i = 1; i <= 10000; i++)
+            histogram.record(i * 1000);
+
+        Assert.assertEquals(10000, histogram.getTotalCount());
+        Assert.assertEquals(1000, histogram.getMinNanos());
+        Assert.assertEquals(10_000_000, histogram.getMaxNanos());
+        Assert.assertEquals(5_000_500, histogram.getMeanNanos(), 0.001);
+        Assert.assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 * 0.04);
+        Assert.assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 * 0.04);
+        Assert.assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsShouldCoverAllPositiveValues(){
+        for(long value : new long[]{0, 1, 63, 64, 65, 1_000_000, Long.MAX_VALUE}){
+            long highest = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value));
+            Assert.assertTrue(highest >= value);
+        }
+    }
+
+    @Test
+    public void mergedStripesShouldContainAllRecordedValues() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(() -> {
+                for(int j = 0; j < 1000; j++) recorder.record(j);
+            });
+            threads[i].start();
+        }
+        for(Thread thread : threads) thread.join();
+
+        LatencyHistogram merged = recorder.getMergedHistogram();
+        Assert.assertEquals(4000, merged.getTotalCount());
+        Assert.assertEquals(0, merged.getMinNanos());
+        Assert.assertEquals(999, merged.getMaxNanos());
+    }
+
+    @Test
+    public void differenceShouldContainOnlyValuesRecordedSinceTheSnapshot(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long i = 1; i <= 100; i++) histogram.record(i * 1000);
+        LatencyHistogram snapshot = new LatencyHistogram();
+        snapshot.add(histogram);
+        for(long i = 1; i <= 100; i++) histogram.record(1_000_000 + i * 1000);
+
+        LatencyHistogram difference = LatencyHistogram.difference(histogram, snapshot);
+        Assert.assertEquals(100, difference.getTotalCount());
+        Assert.assertEquals(1_050_000, difference.getValueAtPercentile(50), 1_050_000 * 0.04);
+        Assert.assertTrue(difference.getMinNanos() > 100_000);
+        Assert.assertEquals(1_100_000, difference.getMaxNanos(), 1_100_000 * 0.04);
+    }
+}
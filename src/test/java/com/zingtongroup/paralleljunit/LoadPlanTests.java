@@ -0,0 +1,70 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class LoadPlanTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static IterationStatistics statistics(long iterations, long latencyNanos){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long i = 0; i < iterations; i++) histogram.record(latencyNanos);
+        return new IterationStatistics(histogram, SECOND);
+    }
+
+    @Test
+    public void staircaseShouldAddThreadsPerStepAndHoldAtMax() {
+        LoadPlan plan = new LoadPlan(LoadProfile.STAIRCASE, 10, 10 * SECOND, 0, 4, 2 * SECOND);
+        Assert.assertEquals(0, plan.getWorkerStartOffset(3));
+        Assert.assertEquals(2 * SECOND, plan.getWorkerStartOffset(4));
+        Assert.assertEquals(4 * SECOND, plan.getWorkerStartOffset(9));
+        Assert.assertEquals(10 * SECOND, plan.getWorkerStopOffset(9));
+        List<LoadPlan.Plateau> plateaus = plan.getPlateaus();
+        Assert.assertEquals(3, plateaus.size());
+        Assert.assertEquals(8, plateaus.get(1).threadCount);
+        Assert.assertEquals(10, plateaus.get(2).threadCount);
+        Assert.assertEquals(10 * SECOND, plateaus.get(2).endOffsetNanos);
+    }
+
+    @Test
+    public void spikeShouldRunAllThreadsInTheMiddle() {
+        LoadPlan plan = new LoadPlan(LoadProfile.SPIKE, 8, 9 * SECOND, 0, 2, 0);
+        Assert.assertEquals(0, plan.getWorkerStartOffset(1));
+        Assert.assertEquals(9 * SECOND, plan.getWorkerStopOffset(1));
+        Assert.assertEquals(3 * SECOND, plan.getWorkerStartOffset(2));
+        Assert.assertEquals(6 * SECOND, plan.getWorkerStopOffset(7));
+        Assert.assertEquals(8, plan.getPlateaus().get(1).threadCount);
+        Assert.assertNull(plan.findKnee(-1));
+    }
+
+    @Test
+    public void linearProfileShouldRampUpWithoutPlateaus() {
+        LoadPlan plan = new LoadPlan(LoadProfile.LINEAR, 5, 10 * SECOND, 4 * SECOND, 1, 0);
+        Assert.assertEquals(3 * SECOND, plan.getWorkerStartOffset(3));
+        Assert.assertTrue(plan.getPlateaus().isEmpty());
+    }
+
+    @Test
+    public void kneeShouldBeWhereThroughputStopsRising() {
+        LoadPlan plan = new LoadPlan(LoadProfile.STAIRCASE, 4, 4 * SECOND, 0, 1, 0);
+        long[] throughputs = {100, 190, 195, 150};
+        for(int i = 0; i < 4; i++)
+            plan.getPlateaus().get(i).statistics = statistics(throughputs[i], 1_000_000);
+        Assert.assertEquals(2, plan.findKnee(-1).threadCount);
+        Assert.assertTrue(plan.report(-1).contains("Max sustainable throughput 190.0 iterations/s at 2 threads, knee found since at 3 threads the throughput only changed +2.6%."));
+    }
+
+    @Test
+    public void kneeShouldBeWhereP99CrossesTheSla() {
+        LoadPlan plan = new LoadPlan(LoadProfile.STAIRCASE, 3, 3 * SECOND, 0, 1, 0);
+        plan.getPlateaus().get(0).statistics = statistics(100, 1_000_000);
+        plan.getPlateaus().get(1).statistics = statistics(200, 5_000_000);
+        plan.getPlateaus().get(2).statistics = statistics(300, 20_000_000);
+        Assert.assertEquals(2, plan.findKnee(10).threadCount);
+        Assert.assertEquals(3, plan.findKnee(-1).threadCount);
+        Assert.assertTrue(plan.report(-1).endsWith("no saturation point reached."));
+    }
+}
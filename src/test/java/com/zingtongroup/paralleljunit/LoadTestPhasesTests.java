@@ -0,0 +1,57 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LoadTestPhasesTests {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @LoadTest(rampUpTimeInMilliseconds = 500, totalDurationInMilliseconds = 2000)
+    public void linear() {
+    }
+
+    @LoadTest(rampUpTimeInMilliseconds = 500, steadyStateStartInMilliseconds = 800, loadProfile = LoadProfile.STAIRCASE)
+    public void staircaseWithSteadyStateStart() {
+    }
+
+    @LoadTest(loadProfile = LoadProfile.SPIKE, rampUpTimeInMilliseconds = 500)
+    public void spike() {
+    }
+
+    private static LoadTestPhases phases(String testMethodName) throws Exception {
+        return LoadTestPhases.create(LoadTestPhasesTests.class.getMethod(testMethodName).getAnnotation(LoadTest.class), 0);
+    }
+
+    @Test
+    public void iterationsShouldBeAssignedToPhasesByStartAndEndTime() throws Exception {
+        LoadTestPhases phases = phases("linear");
+        Assert.assertEquals(LoadTestPhases.Phase.WARM_UP, phases.phaseOf(499 * MS, 600 * MS));
+        Assert.assertEquals(LoadTestPhases.Phase.STEADY, phases.phaseOf(500 * MS, 2000 * MS));
+        Assert.assertEquals(LoadTestPhases.Phase.DRAIN, phases.phaseOf(1990 * MS, 2010 * MS));
+    }
+
+    @Test
+    public void steadyStateStartShouldDependOnLoadProfile() throws Exception {
+        Assert.assertEquals(LoadTestPhases.Phase.WARM_UP, phases("staircaseWithSteadyStateStart").phaseOf(700 * MS, 750 * MS));
+        Assert.assertEquals(LoadTestPhases.Phase.STEADY, phases("spike").phaseOf(0, MS));
+    }
+
+    @Test
+    public void statisticsShouldBeKeptPerPhase() throws Exception {
+        LoadTestPhases phases = phases("linear");
+        phases.record(100 * MS, 10 * MS);
+        for(int i = 0; i < 150; i++) phases.record((500 + i * 10) * MS, 5 * MS);
+        phases.record(1995 * MS, 100 * MS);
+        phases.recordFailure(1000 * MS, 1001 * MS);
+        IterationStatistics steady = phases.getStatistics(LoadTestPhases.Phase.STEADY, 2100 * MS);
+        Assert.assertEquals(150, steady.getIterationCount());
+        Assert.assertEquals(100.0, steady.getThroughputPerSecond(), 0.01);
+        Assert.assertEquals(1, phases.getStatistics(LoadTestPhases.Phase.WARM_UP, 2100 * MS).getIterationCount());
+        Assert.assertEquals(1, phases.getStatistics(LoadTestPhases.Phase.DRAIN, 2100 * MS).getIterationCount());
+        Assert.assertEquals(1, phases.getFailedIterations(LoadTestPhases.Phase.STEADY));
+        Assert.assertTrue(phases.report(2100 * MS).startsWith("warm-up: 1 iterations"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+public class LoadTestScenarioTests {
+
+    @LoadTest
+    @ScenarioMix({@ScenarioMethod(name = "read", weight = 7), @ScenarioMethod(name = "write", weight = 3)})
+    public void mix() {
+    }
+
+    @LoadTest
+    @ScenarioMix({@ScenarioMethod(name = "missing")})
+    public void mixWithMissingMethod() {
+    }
+
+    public void read() {
+    }
+
+    public void write() {
+    }
+
+    private static LoadTestScenario scenario(String testMethodName) throws Exception {
+        Method method = LoadTestScenarioTests.class.getMethod(testMethodName);
+        return LoadTestScenario.create(LoadTestScenarioTests.class, method, TestClassMetadata.forClass(LoadTestScenarioTests.class));
+    }
+
+    @Test
+    public void methodsShouldBePickedByWeight() throws Exception {
+        LoadTestScenario scenario = scenario("mix");
+        int reads = 0;
+        for(int i = 0; i < 10_000; i++)
+            if(scenario.pick().method.getName().equals("read")) reads++;
+        Assert.assertEquals(7000, reads, 300);
+        Assert.assertEquals(0.3, scenario.getWeightShare(scenario.getSteps()[1]), 1e-9);
+    }
+
+    @Test
+    public void testMethodWithoutMixShouldHaveNoScenario() throws Exception {
+        Assert.assertNull(scenario("read"));
+    }
+
+    @Test(expected = Exception.class)
+    public void missingScenarioMethodShouldBeReported() throws Exception {
+        scenario("mixWithMissingMethod");
+    }
+}
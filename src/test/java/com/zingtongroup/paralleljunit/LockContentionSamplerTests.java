@@ -0,0 +1,99 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LockContentionSamplerTests {
+
+    private final Object monitor = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private void runInThreads(LockContentionSampler sampler, Runnable task) throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(() -> {
+                sampler.threadStarted();
+                try {
+                    for(int j = 0; j < 10; j++) task.run();
+                } finally {
+                    sampler.threadFinished();
+                }
+            });
+        }
+        sampler.start();
+        for(Thread thread : threads) thread.start();
+        for(Thread thread : threads) thread.join();
+        sampler.stop();
+    }
+
+    private static void sleep(){
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void holdMonitor(){
+        synchronized (monitor){
+            sleep();
+        }
+    }
+
+    private void holdLock(){
+        lock.lock();
+        try {
+            sleep();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void contendedMonitorShouldBeRankedWithItsOwner() throws InterruptedException {
+        LockContentionSampler sampler = new LockContentionSampler();
+        runInThreads(sampler, this::holdMonitor);
+        System.out.println(sampler);
+
+        Assert.assertTrue(sampler.getBlockedTimeRatio() > 0.3);
+        Assert.assertTrue(sampler.toString().contains("java.lang.Object@" + Integer.toHexString(System.identityHashCode(monitor))));
+        Assert.assertTrue(sampler.toString().contains("LockContentionSamplerTests.holdMonitor"));
+    }
+
+    @Test
+    public void contendedReentrantLockShouldBeSampled() throws InterruptedException {
+        LockContentionSampler sampler = new LockContentionSampler();
+        runInThreads(sampler, this::holdLock);
+
+        Assert.assertTrue(sampler.getBlockedTimeRatio() > 0.3);
+        Assert.assertTrue(sampler.toString().contains("java.util.concurrent.locks.ReentrantLock$NonfairSync"));
+    }
+
+    @Test
+    public void uncontendedThreadsShouldHaveNoBlockedTime() throws InterruptedException {
+        LockContentionSampler sampler = new LockContentionSampler();
+        runInThreads(sampler, LockContentionSamplerTests::sleep);
+
+        Assert.assertEquals(0, sampler.getBlockedTimeRatio(), 0.01);
+        Assert.assertTrue(sampler.toString().endsWith("No contended locks sampled."));
+    }
+
+    @Test
+    public void overlappingSamplersShouldKeepContentionMonitoringEnabled() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadContentionMonitoringSupported() && !threadMXBean.isThreadContentionMonitoringEnabled());
+        LockContentionSampler first = new LockContentionSampler();
+        LockContentionSampler second = new LockContentionSampler();
+        first.start();
+        second.start();
+        first.stop();
+        Assert.assertTrue(threadMXBean.isThreadContentionMonitoringEnabled());
+        second.stop();
+        Assert.assertFalse(threadMXBean.isThreadContentionMonitoringEnabled());
+    }
+}
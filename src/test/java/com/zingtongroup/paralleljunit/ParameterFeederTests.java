@@ -0,0 +1,129 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ParameterFeederTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    String[] lastRecord;
+
+    public void withRecord(String[] record) {
+        lastRecord = record;
+    }
+
+    public void withoutParameter() {
+    }
+
+    private Path file(String content) throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void csvRecordsShouldBeParsedWithoutHeader() throws Exception {
+        ParameterFeeder feeder = new ParameterFeeder(file("id,name\r\n1,\"Doe, John\"\r\n\r\n2,\"say \"\"hi\"\"\"\r\n"), FeederMode.CIRCULAR, 0, true);
+        Assert.assertEquals(2, feeder.getRecordCount());
+        Assert.assertArrayEquals(new String[]{"1", "Doe, John"}, (String[]) feeder.next(String[].class));
+        Assert.assertArrayEquals(new String[]{"2", "say \"hi\""}, (String[]) feeder.next(String[].class));
+        Assert.assertEquals("1,\"Doe, John\"", feeder.next(String.class));
+    }
+
+    @Test
+    public void uniqueOnceFeederShouldBeExhaustedAfterAllRecords() throws Exception {
+        ParameterFeeder feeder = new ParameterFeeder(file("a\nb\nc"), FeederMode.UNIQUE_ONCE, 0, false);
+        Assert.assertEquals("a", feeder.next(String.class));
+        Assert.assertEquals("b", feeder.next(String.class));
+        Assert.assertEquals("c", feeder.next(String.class));
+        try {
+            feeder.next(String.class);
+            Assert.fail("Expected the feeder to be exhausted.");
+        } catch (FeederExhaustedException e) {
+            Assert.assertTrue(e.getMessage().contains("All 3 records"));
+        }
+    }
+
+    @Test
+    public void randomFeederShouldStayWithinRecords() throws Exception {
+        ParameterFeeder feeder = new ParameterFeeder(file("a\nb\nc\n"), FeederMode.RANDOM, 0, false);
+        Set<String> seen = new HashSet<>();
+        for(int i = 0; i < 1000; i++) seen.add((String) feeder.next(String.class));
+        Assert.assertEquals(3, seen.size());
+    }
+
+    @Test
+    public void binaryRecordsShouldHaveFixedSize() throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7});
+        ParameterFeeder feeder = new ParameterFeeder(file, FeederMode.CIRCULAR, 3, false);
+        Assert.assertEquals(2, feeder.getRecordCount());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) feeder.next(byte[].class));
+        ByteBuffer second = (ByteBuffer) feeder.next(ByteBuffer.class);
+        Assert.assertTrue(second.isReadOnly());
+        Assert.assertEquals(3, second.remaining());
+        Assert.assertEquals(4, second.get(0));
+    }
+
+    @Test
+    public void concurrentThreadsShouldGetEachUniqueRecordOnce() throws Exception {
+        StringBuilder content = new StringBuilder();
+        int recordCount = 100_000;
+        for(int i = 0; i < recordCount; i++) content.append(i).append('\n');
+        ParameterFeeder feeder = new ParameterFeeder(file(content.toString()), FeederMode.UNIQUE_ONCE, 0, false);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for(int t = 0; t < 4; t++){
+            Thread thread = new Thread(() -> {
+                try {
+                    while(true)
+                        Assert.assertTrue(seen.add((String) feeder.next(String.class)));
+                } catch (FeederExhaustedException e) {
+                    //All records used.
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads) thread.join();
+        Assert.assertEquals(recordCount, seen.size());
+    }
+
+    @Test
+    public void boundHandleShouldTakeTheRecordOfTheBoundParameterType() throws Throwable {
+        ParameterFeeder feeder = new ParameterFeeder(file("x,1\ny,2\n"), FeederMode.CIRCULAR, 0, false);
+        MethodHandle handle = feeder.bind(ParameterFeederTests.class.getMethod("withRecord", String[].class));
+        TestClassMetadata.invokeTestMethod(handle, this, feeder.next());
+        TestClassMetadata.invokeTestMethod(handle, this, feeder.next());
+        Assert.assertArrayEquals(new String[]{"y", "2"}, lastRecord);
+    }
+
+    @Test
+    public void rewoundFeederShouldStartFromTheFirstRecord() throws Exception {
+        ParameterFeeder feeder = new ParameterFeeder(file("a\nb\n"), FeederMode.UNIQUE_ONCE, 0, false);
+        feeder.next(String.class);
+        feeder.next(String.class);
+        feeder.rewind();
+        Assert.assertEquals("a", feeder.next(String.class));
+    }
+
+    @Test(expected = Exception.class)
+    public void methodWithoutParameterShouldNotBeBound() throws Exception {
+        new ParameterFeeder(file("x\n"), FeederMode.CIRCULAR, 0, false).bind(ParameterFeederTests.class.getMethod("withoutParameter"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.List;
+
+public class PerformanceBaselineTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PerformanceBaseline run(double throughput, double p99Nanos) throws NoSuchMethodException {
+        Method method = PerformanceBaselineTests.class.getDeclaredMethod("run", double.class, double.class);
+        return new PerformanceBaseline(folder.getRoot().toPath(), method)
+                .metric("iterationsPerSecond", throughput, true)
+                .metric("p99Nanos", p99Nanos, false);
+    }
+
+    @Test
+    public void regressionsShouldOnlyBeReportedWithEnoughBaselineRuns() throws IOException, NoSuchMethodException {
+        run(1000, 5_000_000).save();
+        run(1010, 5_100_000).save();
+        Assert.assertTrue(run(500, 10_000_000).regressions(10).isEmpty());
+        run(990, 4_900_000).save();
+        Assert.assertEquals(3, run(0, 0).baselineRunCount());
+
+        List<String> regressions = run(500, 10_000_000).regressions(10);
+        Assert.assertEquals(2, regressions.size());
+        Assert.assertTrue(regressions.get(0).startsWith("iterationsPerSecond decreased 50.0%"));
+        Assert.assertTrue(regressions.get(1).startsWith("p99Nanos increased 100.0%"));
+    }
+
+    @Test
+    public void changesWithinToleranceOrNoiseShouldNotBeRegressions() throws IOException, NoSuchMethodException {
+        run(1000, 5_000_000).save();
+        run(1000, 5_000_000).save();
+        run(1000, 5_000_000).save();
+        Assert.assertTrue(run(950, 5_200_000).regressions(10).isEmpty());
+        Assert.assertTrue(run(2000, 1_000_000).regressions(10).isEmpty());
+
+        run(500, 2_000_000).save();
+        run(1500, 8_000_000).save();
+        Assert.assertTrue("Within three standard deviations of the noisy baseline", run(700, 7_000_000).regressions(10).isEmpty());
+    }
+
+    @Test
+    public void unmeasuredMetricsShouldBeIgnored() throws IOException, NoSuchMethodException {
+        PerformanceBaseline baseline = run(Double.NaN, -1);
+        baseline.save();
+        Assert.assertTrue(baseline.getFile().getFileName().toString().contains("#run@" + PerformanceBaseline.environmentFingerprint()));
+        Assert.assertEquals(1, baseline.baselineRunCount());
+        Assert.assertTrue(baseline.regressions(0).isEmpty());
+    }
+
+    @Test
+    public void onlyTheBaselineRunsShouldBeKept() throws IOException, NoSuchMethodException {
+        for(int i = 0; i < PerformanceBaseline.BASELINE_RUN_COUNT * 3; i++) run(1000 + i, 5_000_000).save();
+        PerformanceBaseline baseline = run(0, 0);
+        Assert.assertEquals(PerformanceBaseline.BASELINE_RUN_COUNT, Files.readAllLines(baseline.getFile()).size());
+        Assert.assertTrue(Files.readAllLines(baseline.getFile()).get(0).contains("iterationsPerSecond=" + (1000 + PerformanceBaseline.BASELINE_RUN_COUNT * 2) + ".000"));
+    }
+}
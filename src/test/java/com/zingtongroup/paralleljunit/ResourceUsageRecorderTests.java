@@ -0,0 +1,58 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+
+public class ResourceUsageRecorderTests {
+
+    static byte[] allocated;
+
+    @RunWith(ParallelJUnit.class)
+    public static class NonAllocatingLoadTest {
+        @LoadTest(maxThreadCount = 2, totalDurationInMilliseconds = 300, warmUpIterations = 1000, maxAllocatedBytesPerIteration = 0)
+        public void nonAllocating() {
+        }
+    }
+
+    @Test
+    public void allocatedBytesShouldBeRecordedPerIteration(){
+        Assume.assumeTrue(ResourceUsageRecorder.currentThreadAllocatedBytes() >= 0);
+        ResourceUsageRecorder recorder = new ResourceUsageRecorder();
+        for(int i = 0; i < 10; i++){
+            long allocatedBytesBefore = ResourceUsageRecorder.currentThreadAllocatedBytes();
+            allocated = new byte[1_000_000];
+            recorder.record(allocatedBytesBefore, ResourceUsageRecorder.currentThreadAllocatedBytes(), -1, -1);
+        }
+        Assert.assertTrue(recorder.getMeanAllocatedBytes() >= 1_000_000);
+        Assert.assertTrue(recorder.getMeanAllocatedBytes() < 1_100_000);
+        Assert.assertTrue(Double.isNaN(recorder.getMeanCpuTimeNanos()));
+    }
+
+    @Test
+    public void cpuTimeShouldBeRecordedPerIteration(){
+        Assume.assumeTrue(ResourceUsageRecorder.currentThreadCpuTime() >= 0);
+        ResourceUsageRecorder recorder = new ResourceUsageRecorder();
+        long cpuTimeBefore = ResourceUsageRecorder.currentThreadCpuTime();
+        long endTime = System.nanoTime() + 20_000_000;
+        while(System.nanoTime() < endTime) allocated = null;
+        recorder.record(-1, -1, cpuTimeBefore, ResourceUsageRecorder.currentThreadCpuTime());
+        Assert.assertTrue(recorder.getMeanCpuTimeNanos() > 0);
+    }
+
+    @Test
+    public void harnessShouldNotBeChargedForAllocations(){
+        Assume.assumeTrue(ResourceUsageRecorder.currentThreadAllocatedBytes() >= 0);
+        Result result = new JUnitCore().run(NonAllocatingLoadTest.class);
+        Assert.assertEquals(0, result.getFailureCount());
+    }
+
+    @Test
+    public void emptyRecorderShouldNotClaimMissingJvmSupport(){
+        Assume.assumeTrue(ResourceUsageRecorder.currentThreadAllocatedBytes() >= 0 || ResourceUsageRecorder.currentThreadCpuTime() >= 0);
+        Assert.assertEquals("Allocation and CPU time: no successful iteration recorded.", new ResourceUsageRecorder().toString());
+    }
+}
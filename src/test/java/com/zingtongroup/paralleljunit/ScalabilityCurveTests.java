@@ -0,0 +1,41 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScalabilityCurveTests {
+
+    private static ScalabilityCurve curve(double contention, double coherency, int... threadCounts){
+        ScalabilityCurve curve = new ScalabilityCurve();
+        long singleThreadDurationNanos = 10_000_000;
+        for(int n : threadCounts){
+            double capacity = n / (1 + contention * (n - 1) + coherency * n * (n - 1));
+            long durationNanos = Math.round(n * singleThreadDurationNanos / capacity);
+            curve.addStep(n, new long[]{durationNanos * 2, durationNanos, durationNanos});
+        }
+        return curve;
+    }
+
+    @Test
+    public void universalScalabilityLawCoefficientsShouldBeRecovered(){
+        ScalabilityCurve curve = curve(0.05, 0.002, 1, 2, 4, 8, 16);
+        Assert.assertEquals(0.05, curve.getContentionCoefficient(), 0.001);
+        Assert.assertEquals(0.002, curve.getCoherencyCoefficient(), 0.0001);
+        Assert.assertEquals(Math.sqrt(0.95 / 0.002), curve.getPeakThreadCount(), 0.5);
+    }
+
+    @Test
+    public void linearScalingShouldHaveFullEfficiency(){
+        ScalabilityCurve curve = curve(0, 0, 1, 2, 4);
+        Assert.assertEquals(1.0, curve.getParallelEfficiency(4), 0.001);
+        Assert.assertEquals(0.0, curve.getContentionCoefficient(), 0.001);
+        Assert.assertTrue(Double.isInfinite(curve.getPeakThreadCount()));
+    }
+
+    @Test
+    public void doublingThreadCountsShouldEndAtTheMaxThreadCount(){
+        Assert.assertArrayEquals(new int[]{1, 2, 4, 6}, ScalabilityCurve.doublingThreadCounts(6));
+        Assert.assertArrayEquals(new int[]{1, 2, 4, 8}, ScalabilityCurve.doublingThreadCounts(8));
+        Assert.assertArrayEquals(new int[]{1}, ScalabilityCurve.doublingThreadCounts(1));
+    }
+}
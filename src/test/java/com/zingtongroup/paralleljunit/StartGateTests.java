@@ -0,0 +1,79 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class StartGateTests {
+
+    @RunWith(ParallelJUnit.class)
+    public static class SerializedParallelizationTest {
+        private static final Object lock = new Object();
+
+        @Before
+        public void slowSetup() throws InterruptedException {
+            Thread.sleep(300);
+        }
+
+        @ParallelizationTest(multipleThreadsCount = 3, maxExecutionDurationMultipleForMultipleThreadsExecution = 1.5, synchronizedStart = true)
+        public void serialized() throws InterruptedException {
+            synchronized (lock){
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    public void singleThreadRunShouldBeTimedFromTheSamePointAsTheParallelRun() {
+        //With the Before methods in the single thread time only, the serialized test method would pass.
+        Result result = new JUnitCore().run(SerializedParallelizationTest.class);
+        Assert.assertEquals(1, result.getFailureCount());
+        Assert.assertTrue(result.getFailures().get(0).getException() instanceof TestMethodExecutionDurationCheckFailedException);
+    }
+
+    @Test
+    public void noThreadShouldStartBeforeTheGateOpens() throws InterruptedException {
+        StartGate startGate = new StartGate(3);
+        AtomicLongArray startTimes = new AtomicLongArray(3);
+        Thread[] threads = new Thread[3];
+        for(int i = 0; i < threads.length; i++){
+            int threadIndex = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    startTimes.set(threadIndex, startGate.arriveAndAwaitRelease(threadIndex));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+        }
+        Assert.assertTrue(startGate.awaitArrivalsAndOpen());
+        for(Thread thread : threads) thread.join();
+
+        for(int i = 0; i < threads.length; i++)
+            Assert.assertTrue(startTimes.get(i) >= startGate.getReleaseTime());
+        Assert.assertTrue(startGate.startSpreadReport().startsWith("3 of 3 threads"));
+    }
+
+    @Test
+    public void threadsNotStartingShouldNotBlockTheGate() throws InterruptedException {
+        StartGate startGate = new StartGate(2);
+        startGate.arriveWithoutStarting();
+        Thread thread = new Thread(() -> {
+            try {
+                startGate.arriveAndAwaitRelease(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        Assert.assertTrue(startGate.awaitArrivalsAndOpen());
+        thread.join();
+        Assert.assertTrue(startGate.startSpreadReport().startsWith("1 of 2 threads"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestClassMetadataTests {
+
+    public static class BaseTestClass {
+        List<String> calls = new ArrayList<>();
+
+        @Before
+        public void baseSetup(){
+            calls.add("baseSetup");
+        }
+
+        @Before
+        public void overriddenSetup(){
+            calls.add("baseOverriddenSetup");
+        }
+
+        @After
+        public void baseTeardown(){
+            calls.add("baseTeardown");
+        }
+    }
+
+    public static class SubTestClass extends BaseTestClass {
+
+        @Before
+        void packagePrivateSetup(){
+            calls.add("subSetup");
+        }
+
+        @Override
+        public void overriddenSetup(){
+            calls.add("subOverriddenSetup");
+        }
+
+        @After
+        public void subTeardown(){
+            calls.add("subTeardown");
+        }
+
+        public String testMethod(){
+            calls.add("test");
+            return "result";
+        }
+    }
+
+    @Test
+    public void lifecycleMethodsShouldRunInJUnitOrder() throws Exception {
+        TestClassMetadata metadata = TestClassMetadata.forClass(SubTestClass.class);
+        SubTestClass instance = (SubTestClass) metadata.newInstance();
+
+        metadata.runBeforeMethods(instance);
+        Object result = TestClassMetadata.invokeTestMethod(metadata.testMethodHandle(SubTestClass.class.getMethod("testMethod")), instance);
+        metadata.runAfterMethods(instance);
+
+        Assert.assertEquals("result", result);
+        Assert.assertEquals(Arrays.asList("baseSetup", "subSetup", "test", "subTeardown", "baseTeardown"), removeOverridden(instance.calls));
+        Assert.assertTrue(instance.calls.contains("subOverriddenSetup"));
+        Assert.assertFalse(instance.calls.contains("baseOverriddenSetup"));
+    }
+
+    @Test
+    public void metadataShouldBeCachedPerClass(){
+        Assert.assertSame(TestClassMetadata.forClass(SubTestClass.class), TestClassMetadata.forClass(SubTestClass.class));
+    }
+
+    private static List<String> removeOverridden(List<String> calls){
+        List<String> result = new ArrayList<>(calls);
+        result.remove("subOverriddenSetup");
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
+
+public class TestInstanceProviderTests {
+
+    public static class CountingTestClass {
+        static int instanceCount;
+        static int invocationCount;
+
+        public CountingTestClass(){
+            instanceCount++;
+        }
+
+        public void testMethod(){
+            invocationCount++;
+        }
+    }
+
+    @RunWith(ParallelJUnit.class)
+    public static class SmallPoolParallelTest {
+        @ParallelTest(threadCount = 4, testInstanceScope = TestInstanceScope.POOLED, testInstancePoolSize = 1, synchronizedStart = true)
+        public void borrowsTheOnlyInstance() throws InterruptedException {
+            Thread.sleep(10);
+        }
+    }
+
+    static CustomTestMethodRunnerBase runner() throws NoSuchMethodException {
+        return new CustomTestMethodRunnerBase(new RunNotifier(), CountingTestClass.class, CountingTestClass.class.getMethod("testMethod")) {
+            @Override
+            void run() {
+            }
+        };
+    }
+
+    @Test
+    public void perThreadInstancesShouldBeCreatedBeforeTheTest() throws Exception {
+        CountingTestClass.instanceCount = 0;
+        TestInstanceProvider provider = TestInstanceProvider.create(TestInstanceScope.PER_THREAD, 3, 0, runner());
+        provider.prepare();
+        Assert.assertEquals(3, CountingTestClass.instanceCount);
+        Assert.assertSame(provider.acquire(1), provider.acquire(1));
+        Assert.assertNotSame(provider.acquire(0), provider.acquire(1));
+        Assert.assertEquals(3, CountingTestClass.instanceCount);
+    }
+
+    @Test
+    public void perIterationShouldCreateANewInstanceForEveryAcquire() throws Exception {
+        TestInstanceProvider provider = TestInstanceProvider.create(TestInstanceScope.PER_ITERATION, 3, 0, runner());
+        provider.prepare();
+        Assert.assertNotSame(provider.acquire(0), provider.acquire(0));
+    }
+
+    @Test
+    public void pooledInstancesShouldBeLentOutOneAtATime() throws Exception {
+        TestInstanceProvider provider = TestInstanceProvider.create(TestInstanceScope.POOLED, 3, 1, runner());
+        provider.prepare();
+        Object first = provider.acquire(0);
+        Thread borrower = new Thread(() -> {
+            try {
+                provider.release(provider.acquire(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        borrower.start();
+        borrower.join(200);
+        Assert.assertTrue(borrower.isAlive());
+        provider.release(first);
+        borrower.join(5000);
+        Assert.assertFalse(borrower.isAlive());
+        Assert.assertSame(first, provider.acquire(2));
+    }
+
+    @Test
+    public void poolSmallerThanThreadCountShouldNotWaitForTheStartGate() {
+        long startTime = System.nanoTime();
+        Result result = new JUnitCore().run(SmallPoolParallelTest.class);
+        Assert.assertEquals(0, result.getFailureCount());
+        Assert.assertTrue("The threads waited for the start gate arrival timeout.", System.nanoTime() - startTime < 5_000_000_000L);
+    }
+}
@@ -0,0 +1,92 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMethodSchedulerTests {
+
+    private final AtomicInteger usedThreads = new AtomicInteger();
+    private final AtomicInteger maxUsedThreads = new AtomicInteger();
+    private final AtomicInteger runningInGroup = new AtomicInteger();
+    private final AtomicInteger maxRunningInGroup = new AtomicInteger();
+
+    private TestMethodScheduler.TestMethodTask occupy(int threads, boolean inGroup){
+        return () -> {
+            maxUsedThreads.accumulateAndGet(usedThreads.addAndGet(threads), Math::max);
+            if(inGroup) maxRunningInGroup.accumulateAndGet(runningInGroup.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            if(inGroup) runningInGroup.decrementAndGet();
+            usedThreads.addAndGet(-threads);
+        };
+    }
+
+    @Test
+    public void methodsShouldBePackedWithinTheThreadBudget() throws Exception {
+        TestMethodScheduler scheduler = new TestMethodScheduler(4);
+        scheduler.add("small", 1, "", occupy(1, false));
+        scheduler.add("large", 3, "", occupy(3, false));
+        scheduler.add("exclusive", 2, ConcurrentTestMethods.EXCLUSIVE, () -> {
+            Assert.assertEquals(0, usedThreads.get());
+            occupy(0, false).run();
+        });
+        scheduler.add("medium", 2, "", occupy(2, false));
+        scheduler.add("tooLarge", 10, "", occupy(1, false));
+        scheduler.run();
+
+        Assert.assertEquals(Arrays.asList("exclusive", "tooLarge", "large", "small", "medium"), scheduler.getStartOrder());
+        Assert.assertEquals("Large and small should run together", 4, maxUsedThreads.get());
+    }
+
+    @Test
+    public void methodsOfTheSameIsolationGroupShouldRunOneAtATime() throws Exception {
+        TestMethodScheduler scheduler = new TestMethodScheduler(8);
+        for(int i = 0; i < 3; i++)
+            scheduler.add("database" + i, 1, "database", occupy(1, true));
+        scheduler.add("other", 1, "", occupy(1, false));
+        scheduler.run();
+
+        Assert.assertEquals(1, maxRunningInGroup.get());
+        Assert.assertEquals(2, maxUsedThreads.get());
+    }
+
+    public static class IsolationGroupTests {
+        @ParallelTest
+        public void untimed(){
+        }
+
+        @ParallelTest(timeout = 1000)
+        public void timed(){
+        }
+
+        @ParallelTest(maxGcPauseFraction = 0.1)
+        public void gcPauseLimited(){
+        }
+
+        @ParallelTest(failOnRegressionPercent = 20, isolationGroup = "database")
+        public void regressionCheckedInGroup(){
+        }
+    }
+
+    @Test
+    public void parallelTestsAssertingTimingShouldRunExclusively() throws NoSuchMethodException {
+        Assert.assertEquals("", ParallelJUnit.isolationGroup(IsolationGroupTests.class.getMethod("untimed")));
+        Assert.assertEquals(ConcurrentTestMethods.EXCLUSIVE, ParallelJUnit.isolationGroup(IsolationGroupTests.class.getMethod("timed")));
+        Assert.assertEquals(ConcurrentTestMethods.EXCLUSIVE, ParallelJUnit.isolationGroup(IsolationGroupTests.class.getMethod("gcPauseLimited")));
+        Assert.assertEquals("database", ParallelJUnit.isolationGroup(IsolationGroupTests.class.getMethod("regressionCheckedInGroup")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void firstExceptionShouldBeRethrownAfterAllMethodsFinished() throws Exception {
+        TestMethodScheduler scheduler = new TestMethodScheduler(2);
+        scheduler.add("failing", 1, "", () -> { throw new IllegalStateException(); });
+        scheduler.add("passing", 1, "", occupy(1, false));
+        try {
+            scheduler.run();
+        } finally {
+            Assert.assertEquals(0, usedThreads.get());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestWatchdogTests {
+
+    private final Object first = new Object();
+    private final Object second = new Object();
+    private final CountDownLatch bothLocked = new CountDownLatch(2);
+
+    public void testMethod(){
+    }
+
+    private List<TestMethodExecutor> submit(ExecutorService threadPool, Runnable... tasks) throws NoSuchMethodException {
+        List<TestMethodExecutor> executors = new ArrayList<>();
+        for(Runnable task : tasks){
+            TestMethodExecutor executor = new TestMethodExecutor(null, executors.size(), TestWatchdogTests.class.getMethod("testMethod"));
+            executors.add(executor);
+            threadPool.execute(() -> {
+                executor.thread = Thread.currentThread();
+                try {
+                    task.run();
+                } finally {
+                    executor.finished = true;
+                }
+            });
+        }
+        threadPool.shutdown();
+        return executors;
+    }
+
+    private void lockBoth(Object outer, Object inner){
+        synchronized (outer){
+            bothLocked.countDown();
+            try {
+                bothLocked.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (inner){
+                Assert.fail("Should deadlock");
+            }
+        }
+    }
+
+    @Test
+    public void deadlockShouldBeDetectedWithinSeconds() throws Exception {
+        ExecutorService threadPool = new PlatformThreadExecutionEngine().createExecutorService(2);
+        List<TestMethodExecutor> executors = submit(threadPool, () -> lockBoth(first, second), () -> lockBoth(second, first));
+        TestWatchdog watchdog = new TestWatchdog(threadPool, executors, 0, TimeUnit.MINUTES.toNanos(1));
+        long startTime = System.nanoTime();
+
+        Assert.assertEquals(TestWatchdog.Outcome.DEADLOCK, watchdog.awaitTermination());
+        Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(5));
+        Assert.assertTrue(watchdog.getDiagnosis().contains("BLOCKED on java.lang.Object@"));
+        Assert.assertTrue(watchdog.getDiagnosis().contains("TestWatchdogTests.lockBoth"));
+        Assert.assertTrue(watchdog.getDiagnosis().contains("- locked java.lang.Object@"));
+    }
+
+    @Test
+    public void stallShouldBeDetectedAfterAMultipleOfTheExpectedDuration() throws Exception {
+        CountDownLatch neverOpened = new CountDownLatch(1);
+        ExecutorService threadPool = new PlatformThreadExecutionEngine().createExecutorService(1);
+        List<TestMethodExecutor> executors = submit(threadPool, () -> {
+            try {
+                neverOpened.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TestWatchdog watchdog = new TestWatchdog(threadPool, executors, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MINUTES.toNanos(1));
+        long startTime = System.nanoTime();
+
+        Assert.assertEquals(TestWatchdog.Outcome.STALL, watchdog.awaitTermination());
+        Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(5));
+        Assert.assertTrue(watchdog.getDiagnosis().contains("CountDownLatch.await"));
+        Assert.assertTrue("Stalled threads should be interrupted", threadPool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void finishingThreadsShouldTerminate() throws Exception {
+        ExecutorService threadPool = new PlatformThreadExecutionEngine().createExecutorService(2);
+        List<TestMethodExecutor> executors = submit(threadPool, () -> {}, () -> {});
+        Assert.assertEquals(TestWatchdog.Outcome.TERMINATED, new TestWatchdog(threadPool, executors, 0, TimeUnit.SECONDS.toNanos(5)).awaitTermination());
+    }
+}
@@ -0,0 +1,32 @@
+package com.zingtongroup.paralleljunit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WarmUpTests {
+
+    private static final int MAX_WARM_UP_MILLISECONDS = 200;
+    private static final long MARGIN_NANOSECONDS = 300_000_000L;
+
+    @Test
+    public void warmUpShouldRunTheGivenIterationCount() throws NoSuchMethodException {
+        TestInstanceProviderTests.CountingTestClass.invocationCount = 0;
+        CustomTestMethodRunnerBase runner = TestInstanceProviderTests.runner();
+        new WarmUp(25, 0, 0, 60000).run(runner, TestInstanceProvider.create(TestInstanceScope.PER_ITERATION, 1, 0, runner));
+        Assert.assertEquals(25, TestInstanceProviderTests.CountingTestClass.invocationCount);
+    }
+
+    @Test
+    public void untilStableWarmUpShouldStopAtTheMaxWarmUpTime() throws NoSuchMethodException {
+        CustomTestMethodRunnerBase runner = TestInstanceProviderTests.runner();
+        long startTime = System.nanoTime();
+        new WarmUp(0, 0, 0.000001, MAX_WARM_UP_MILLISECONDS).run(runner, TestInstanceProvider.create(TestInstanceScope.PER_ITERATION, 1, 0, runner));
+        Assert.assertTrue(System.nanoTime() - startTime < MAX_WARM_UP_MILLISECONDS * 1_000_000L + MARGIN_NANOSECONDS);
+    }
+
+    @Test
+    public void coefficientOfVariationShouldBeStandardDeviationOverMean(){
+        Assert.assertEquals(0, WarmUp.coefficientOfVariation(new long[]{5, 5, 5, 5}), 1e-9);
+        Assert.assertEquals(0.5, WarmUp.coefficientOfVariation(new long[]{1, 3, 1, 3}), 1e-9);
+    }
+}